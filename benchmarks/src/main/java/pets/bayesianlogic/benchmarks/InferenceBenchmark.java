@@ -0,0 +1,84 @@
+package pets.bayesianlogic.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pets.bayesianlogic.stuff.BayesianBody;
+import pets.bayesianlogic.stuff.CompiledBayesianModel;
+import pets.bayesianlogic.stuff.Evidence;
+import pets.bayesianlogic.stuff.FactState;
+import pets.bayesianlogic.stuff.InferenceResult;
+import pets.bayesianlogic.stuff.PrunedPosteriors;
+import pets.bayesianlogic.stuff.RankedHypothesis;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inference across sizes H x F: the body (with its validation; the posterior cache is turned off
+ * by the fork, otherwise only the cache would be measured) and the compiled model.
+ * @author Kolesnikov Stephan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Dpets.bayesianlogic.posterior.cache=0",
+        "-Dpets.bayesianlogic.log.console=false"})
+public class InferenceBenchmark {
+
+    @Param({"4", "64", "256"})
+    public int hypos;
+
+    @Param({"16", "256", "4096"})
+    public int facts;
+
+    private BayesianBody body;
+    private CompiledBayesianModel compiled;
+
+    /**
+     * Evidence with a third of the facts present, a third absent and a third unknown.
+     */
+    private Evidence mixed;
+
+    @Setup(Level.Trial)
+    public void generate() throws Exception {
+        this.body = SyntheticModels.load(SyntheticModels.write(this.hypos, this.facts));
+        this.compiled = this.body.compile();
+
+        SplittableRandom random = new SplittableRandom(7);
+        FactState[] states = new FactState[this.facts];
+        for (int j = 0; j < this.facts; ++j) { states[j] = FactState.values()[random.nextInt(3)]; }
+        this.mixed = Evidence.of(states);
+    }
+
+    @Benchmark
+    public double[] bodyPosteriors() throws Exception {
+        return this.body.getPosteriorArray();
+    }
+
+    @Benchmark
+    public InferenceResult bodyInferenceResult() throws Exception {
+        return this.body.getInferenceResult();
+    }
+
+    @Benchmark
+    public double[] compiledPosteriors() {
+        return this.compiled.posteriors();
+    }
+
+    @Benchmark
+    public double[] compiledPosteriorsMixedEvidence() {
+        return this.compiled.posteriors(this.mixed);
+    }
+
+    @Benchmark
+    public List<RankedHypothesis> compiledTop3MixedEvidence() {
+        return this.compiled.topK(3, this.mixed);
+    }
+
+    @Benchmark
+    public PrunedPosteriors compiledPrunedMixedEvidence() {
+        return this.compiled.prunedPosteriors(this.mixed, 20);
+    }
+}
@@ -0,0 +1,61 @@
+package pets.bayesianlogic.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pets.bayesianlogic.stuff.BayesianBody;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Internals of the text reader, measured through the public readers of a body with the read header:
+ * {@code readThesis()} is one bare pass of {@code processingKeyword} over the file (one keyword, no parsing),
+ * {@code readProbabilities()} is two passes ({@code prob_default} and {@code prob}) with
+ * {@code parseProbabilityLine} per «prob» line. So the cost of the parsing of lines is about
+ * {@code readProbabilities - 2 * readThesis}.
+ * @author Kolesnikov Stephan
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Dpets.bayesianlogic.log.console=false"})
+public class KeywordBenchmark {
+
+    /**
+     * Size of the model: hypotheses x facts.
+     */
+    @Param({"8x32", "64x512"})
+    public String size;
+
+    /**
+     * Body with the read header and the allocated table.
+     */
+    private BayesianBody body;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        int[] hf = SyntheticModels.parseSize(this.size);
+        Path file = SyntheticModels.write(hf[0], hf[1]);
+        this.body = SyntheticModels.load(file);
+    }
+
+    /**
+     * One pass over the file for a keyword of one line (the cost of the pass itself).
+     */
+    @Benchmark
+    public BayesianBody processingKeywordPass() throws IOException {
+        this.body.readThesis();
+        return this.body;
+    }
+
+    /**
+     * Passes over the file, which pick and parse the {@code prob} lines and fill the table.
+     */
+    @Benchmark
+    public BayesianBody processingKeywordProb() throws IOException {
+        this.body.readProbabilities();
+        return this.body;
+    }
+}
@@ -0,0 +1,45 @@
+package pets.bayesianlogic.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pets.bayesianlogic.logger.BayesianJSONFormatter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * JSON formatting of one log record: a typical message and a message that needs escaping.
+ * @author Kolesnikov Stephan
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingBenchmark {
+
+    private final BayesianJSONFormatter formatter = new BayesianJSONFormatter();
+    private LogRecord plain;
+    private LogRecord escaped;
+
+    @Setup
+    public void prepare() {
+        this.plain = new LogRecord(Level.INFO, "Line (prob;12;345;0.6789) was checked for «noise».");
+        this.plain.setLoggerName("pets.bayesianlogic.stuff.BayesianBody");
+
+        this.escaped = new LogRecord(Level.WARNING, "Path \"C:\\data\\model.txt\"\n\tis\u0001 broken");
+        this.escaped.setLoggerName("pets.bayesianlogic.stuff.BayesianBody");
+        this.escaped.setThrown(new IllegalStateException("quoted \"cause\""));
+    }
+
+    @Benchmark
+    public String formatPlain() {
+        return this.formatter.format(this.plain);
+    }
+
+    @Benchmark
+    public String formatEscaped() {
+        return this.formatter.format(this.escaped);
+    }
+}
@@ -0,0 +1,77 @@
+package pets.bayesianlogic.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pets.bayesianlogic.stuff.BayesianBody;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading of a whole model file: the single {@code readAll(Path)}, the four passes of {@code read*()},
+ * the streaming single pass, the parallel table part and the memory-mapped table.
+ * @author Kolesnikov Stephan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Dpets.bayesianlogic.log.console=false"})
+public class ReadBenchmark {
+
+    /**
+     * Size of the model: hypotheses x facts.
+     */
+    @Param({"8x32", "64x512", "256x2048"})
+    public String size;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        int[] hf = SyntheticModels.parseSize(this.size);
+        this.file = SyntheticModels.write(hf[0], hf[1]);
+    }
+
+    @Benchmark
+    public BayesianBody readAll() throws IOException {
+        BayesianBody body = new BayesianBody(this.file);
+        body.readAll(null);
+        return body;
+    }
+
+    @Benchmark
+    public BayesianBody readFourPasses() throws IOException {
+        BayesianBody body = new BayesianBody(this.file);
+        body.readThesis();
+        body.readHypotheses();
+        body.readFacts();
+        body.readProbabilities();
+        return body;
+    }
+
+    @Benchmark
+    public BayesianBody readAllStreaming() throws IOException {
+        BayesianBody body = new BayesianBody(this.file);
+        body.readAllStreaming(null);
+        return body;
+    }
+
+    @Benchmark
+    public BayesianBody readAllParallel() throws IOException {
+        BayesianBody body = new BayesianBody(this.file);
+        body.readAllParallel(null);
+        return body;
+    }
+
+    @Benchmark
+    public BayesianBody readProbabilitiesMapped() throws IOException {
+        BayesianBody body = new BayesianBody(this.file);
+        body.readThesis();
+        body.readHypotheses();
+        body.readFacts();
+        body.readProbabilitiesMapped();
+        return body;
+    }
+}
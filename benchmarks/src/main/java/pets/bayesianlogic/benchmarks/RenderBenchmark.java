@@ -0,0 +1,66 @@
+package pets.bayesianlogic.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pets.bayesianlogic.render.ResultRenderer;
+import pets.bayesianlogic.stuff.BayesianBody;
+import pets.bayesianlogic.stuff.InferenceResult;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering: the whole {@code getStringResult()} (with inference, the posterior cache is on as usual)
+ * and every renderer alone over a computed result into a reused builder.
+ * @author Kolesnikov Stephan
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Dpets.bayesianlogic.log.console=false"})
+public class RenderBenchmark {
+
+    /**
+     * Size of the model: hypotheses x facts.
+     */
+    @Param({"4x16", "64x256"})
+    public String size;
+
+    private BayesianBody body;
+    private InferenceResult result;
+    private final StringBuilder out = new StringBuilder(64 * 1024);
+
+    @Setup(Level.Trial)
+    public void generate() throws Exception {
+        int[] hf = SyntheticModels.parseSize(this.size);
+        this.body = SyntheticModels.load(SyntheticModels.write(hf[0], hf[1]));
+        this.result = this.body.getInferenceResult();
+    }
+
+    @Benchmark
+    public String getStringResult() throws Exception {
+        return this.body.getStringResult(false);
+    }
+
+    @Benchmark
+    public int boxArt() throws IOException {
+        return render(ResultRenderer.boxArt());
+    }
+
+    @Benchmark
+    public int plainText() throws IOException {
+        return render(ResultRenderer.plainText());
+    }
+
+    @Benchmark
+    public int json() throws IOException {
+        return render(ResultRenderer.json());
+    }
+
+    private int render(ResultRenderer renderer) throws IOException {
+        this.out.setLength(0);
+        renderer.render(this.result, this.out);
+        return this.out.length();
+    }
+}
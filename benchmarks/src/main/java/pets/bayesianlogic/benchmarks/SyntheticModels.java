@@ -0,0 +1,99 @@
+package pets.bayesianlogic.benchmarks;
+
+import pets.bayesianlogic.stuff.BayesianBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Generator of synthetic model files of any size for the benchmarks. <br>
+ * The file contains every keyword of the format (thesis, counts, hypotheses with chances, facts
+ * and the full table of {@code prob} lines), the values are random but reproducible (fixed seed),
+ * the chances sum up to 1 and no cell of the table is zero.
+ * @author Kolesnikov Stephan
+ */
+public final class SyntheticModels {
+
+    private SyntheticModels() {}
+
+    /**
+     * Parses a size written as "HxF" (hypotheses x facts).
+     * @return {hypotheses, facts}.
+     */
+    public static int[] parseSize(String size) {
+        String[] parts = size.toLowerCase(Locale.ROOT).split("x");
+        return new int[]{ Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()) };
+    }
+
+    /**
+     * Writes a model file into a new temporary file (deleted at JVM exit).
+     * @param hypos amount of hypotheses.
+     * @param facts amount of facts.
+     * @return path to the file.
+     */
+    public static Path write(int hypos, int facts) {
+        try {
+            Path file = Files.createTempFile("bayes-" + hypos + "x" + facts + "-", ".txt");
+            file.toFile().deleteOnExit();
+            write(file, hypos, facts);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes a model file.
+     * @param file target (created or replaced).
+     * @param hypos amount of hypotheses.
+     * @param facts amount of facts.
+     * @throws IOException writing failure.
+     */
+    public static void write(Path file, int hypos, int facts) throws IOException {
+        SplittableRandom random = new SplittableRandom(hypos * 31L + facts);
+
+        double[] chances = new double[hypos];
+        double sum = 0;
+        for (int i = 0; i < hypos; ++i) { sum += chances[i] = 1 + random.nextInt(100); }
+
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("main_thesis;Synthetic model " + hypos + " x " + facts + "\n");
+            out.write("hypos_count;" + hypos + "\n");
+            for (int i = 0; i < hypos; ++i) {
+                out.write("hypo;Hypothesis number " + (i + 1) + "\n");
+                // Plain notation: the reader does not accept exponents (small chances of many hypotheses).
+                out.write("hypo_chance;" + BigDecimal.valueOf(chances[i] / sum).toPlainString() + "\n");
+            }
+            out.write("facts_count;" + facts + "\n");
+            for (int j = 0; j < facts; ++j) {
+                out.write("fact;Fact number " + (j + 1) + "\n");
+            }
+            for (int i = 0; i < hypos; ++i) {
+                for (int j = 0; j < facts; ++j) {
+                    // (0.01, 0.99): never zero, never one.
+                    out.write("prob;" + (i + 1) + ";" + (j + 1) + ";" + (0.01 + 0.98 * random.nextDouble()) + "\n");
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads a body from a model file (single-pass reading).
+     */
+    public static BayesianBody load(Path file) {
+        try {
+            BayesianBody body = new BayesianBody(file);
+            body.readAllStreaming(null);
+            return body;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package pets.bayesianlogic.stuff;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The pruned inference against the exact one: every posterior stays within the reported error bound,
+ * the leader is never dropped, and a sparse table still prunes.
+ * @author Kolesnikov Stephan
+ */
+class BeamPrunerTest {
+
+    private static final int HYPOS = 200;
+    private static final int FACTS = 400;
+
+    /**
+     * Slack for the rounding of the two different summation orders.
+     */
+    private static final double ROUNDING = 1e-12;
+
+    private static LogSpaceEngine denseEngine(long seed) {
+        double[] cells = TestModels.randomCells(HYPOS, FACTS, seed, 3.0);
+        ProbabilityModel model = new ProbabilityModel(HYPOS, FACTS);
+        for (int i = 0; i < HYPOS; ++i) {
+            model.setPrior(i, 1.0 / HYPOS);
+            for (int j = 0; j < FACTS; ++j) { model.set(i, j, cells[i * FACTS + j]); }
+        }
+        return new LogSpaceEngine(model);
+    }
+
+    /**
+     * Sparse table: the first hypotheses have every cell explicit and NO default, the rest have own defaults.
+     */
+    private static LogSpaceEngine sparseEngine(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        SparseProbabilityModel model = new SparseProbabilityModel(HYPOS, FACTS);
+        for (int i = 0; i < HYPOS; ++i) {
+            model.setPrior(i, 1.0 / HYPOS);
+            if (i < 5) {
+                for (int j = 0; j < FACTS; ++j) { model.set(i, j, 0.01 + 0.98 * random.nextDouble()); }
+            } else {
+                model.setDefault(i, 0.05 + 0.4 * random.nextDouble());
+                for (int k = 0; k < 40; ++k) { model.set(i, random.nextInt(FACTS), 0.01 + 0.98 * random.nextDouble()); }
+            }
+        }
+        return new LogSpaceEngine(model);
+    }
+
+    private static void assertWithinBound(LogSpaceEngine engine, Evidence evidence, double logRatio) {
+        double[] exact = engine.posteriors(evidence);
+        PrunedPosteriors pruned = engine.prunedPosteriors(evidence, logRatio);
+
+        int leader = 0;
+        for (int i = 1; i < exact.length; ++i) { if (exact[i] > exact[leader]) { leader = i; } }
+        assertTrue(pruned.getPosterior(leader) > 0, "the leader was pruned");
+
+        for (int i = 0; i < exact.length; ++i) {
+            assertEquals(exact[i], pruned.getPosterior(i), pruned.getErrorBound() + ROUNDING,
+                    "hypothesis " + i + " (margin " + logRatio + ", " + pruned + ")");
+        }
+    }
+
+    @Test
+    void denseTableStaysWithinErrorBound() {
+        LogSpaceEngine engine = denseEngine(11);
+        int prunedTotal = 0;
+        for (long seed = 1; seed <= 5; ++seed) {
+            Evidence evidence = TestModels.randomEvidence(FACTS, seed);
+            for (double logRatio : new double[]{2, 5, 10, 20}) {
+                assertWithinBound(engine, evidence, logRatio);
+                prunedTotal += engine.prunedPosteriors(evidence, logRatio).getPrunedCount();
+            }
+        }
+        assertTrue(prunedTotal > 0, "nothing was pruned, the check proves nothing");
+    }
+
+    @Test
+    void sparseTableStaysWithinErrorBound() {
+        LogSpaceEngine engine = sparseEngine(12);
+        for (long seed = 1; seed <= 5; ++seed) {
+            Evidence evidence = TestModels.randomEvidence(FACTS, seed);
+            for (double logRatio : new double[]{2, 5, 10, 20}) {
+                assertWithinBound(engine, evidence, logRatio);
+            }
+        }
+    }
+
+    @Test
+    void hypothesesWithoutDefaultKeepTheBoundsFinite() {
+        LogSpaceEngine engine = sparseEngine(13);
+        for (int j = 0; j < FACTS; ++j) {
+            assertTrue(engine.minContribution(j, FactState.PRESENT) > Double.NEGATIVE_INFINITY, "fact " + j);
+            assertTrue(engine.minContribution(j, FactState.ABSENT) > Double.NEGATIVE_INFINITY, "fact " + j);
+        }
+        PrunedPosteriors pruned = engine.prunedPosteriors(Evidence.allPresent(FACTS), 10);
+        assertTrue(pruned.getPrunedCount() > 0);
+    }
+
+    @Test
+    void wideMarginPrunesNothing() {
+        LogSpaceEngine engine = denseEngine(14);
+        Evidence evidence = TestModels.randomEvidence(FACTS, 7);
+        PrunedPosteriors pruned = engine.prunedPosteriors(evidence, 1e6);
+
+        assertEquals(0, pruned.getPrunedCount());
+        assertEquals(0.0, pruned.getErrorBound());
+        assertArrayEquals(engine.posteriors(evidence), pruned.getPosteriors(), ROUNDING);
+    }
+}
@@ -0,0 +1,147 @@
+package pets.bayesianlogic.stuff;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pets.bayesianlogic.except.IncorrectFileValuesException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The parallel reader against the single-pass one: the same table whatever the pool, and the same error
+ * whatever the order of the threads (the file is several megabytes, so it is split into several ranges).
+ * @author Kolesnikov Stephan
+ */
+class ParallelProbabilityParserTest {
+
+    private static final int HYPOS = 50;
+    private static final int FACTS = 4000;
+    private static final int[] POOL_SIZES = {1, 2, 4, 8};
+
+    @TempDir
+    Path dir;
+
+    /**
+     * @return «prob» lines of the dense table in row-major order.
+     */
+    private static String[] probLines() {
+        double[] cells = TestModels.randomCells(HYPOS, FACTS, 5, 1.0);
+        String[] lines = new String[HYPOS * FACTS];
+        for (int i = 0; i < HYPOS; ++i) {
+            for (int j = 0; j < FACTS; ++j) { lines[i * FACTS + j] = TestModels.probLine(i, j, cells[i * FACTS + j]); }
+        }
+        return lines;
+    }
+
+    /**
+     * Writes the model; a <code>null</code> line is left out.
+     */
+    private Path write(String name, String[] lines) throws IOException {
+        Path file = this.dir.resolve(name);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            TestModels.writeHeader(out, HYPOS, FACTS);
+            for (String line : lines) {
+                if (line != null) { out.write(line); }
+            }
+        }
+        return file;
+    }
+
+    private static BayesianBody loadParallel(Path file, int parallelism) throws IOException {
+        BayesianBody body = new BayesianBody(file);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            body.readAllParallel(null, pool);
+        } finally {
+            pool.shutdown();
+        }
+        return body;
+    }
+
+    private static String parallelFailure(Path file, int parallelism) {
+        return assertThrows(IncorrectFileValuesException.class, () -> loadParallel(file, parallelism),
+                "pool of " + parallelism).getMessage();
+    }
+
+    private static int cell(int hypo, int fact) {
+        return (hypo - 1) * FACTS + (fact - 1);
+    }
+
+    @Test
+    void everyPoolReadsTheSameTable() throws IOException {
+        Path file = write("dense.txt", probLines());
+        assertTrue(Files.size(file) > 3 * (1 << 20), "the file is too small to be split");
+        double[][] expected = TestModels.load(file).getDeepClonedProbabilityTable();
+        for (int parallelism : POOL_SIZES) {
+            double[][] actual = loadParallel(file, parallelism).getDeepClonedProbabilityTable();
+            for (int i = 0; i < HYPOS; ++i) {
+                assertArrayEquals(expected[i], actual[i], "row " + i + ", pool of " + parallelism);
+            }
+        }
+    }
+
+    @Test
+    void firstBrokenLineIsReportedWhateverThePool() throws IOException {
+        String[] lines = probLines();
+        lines[cell(11, 1)] = "prob;11;x;0.5\n";
+        lines[cell(41, 1)] = "prob;41;1\n";
+        Path file = write("broken.txt", lines);
+
+        IncorrectFileValuesException streaming =
+                assertThrows(IncorrectFileValuesException.class, () -> TestModels.load(file));
+        assertEquals("Non-value argument in parsing by `prob`.", streaming.getMessage());
+        for (int parallelism : POOL_SIZES) {
+            for (int round = 0; round < 3; ++round) {
+                assertEquals(streaming.getMessage(), parallelFailure(file, parallelism));
+            }
+        }
+    }
+
+    @Test
+    void headerKeywordIsReportedInTheSameLine() throws IOException {
+        String[] lines = probLines();
+        lines[cell(31, 7)] = "fact;Late fact\n";
+        Path file = write("keyword.txt", lines);
+
+        IncorrectFileValuesException streaming =
+                assertThrows(IncorrectFileValuesException.class, () -> TestModels.load(file));
+        assertTrue(streaming.getMessage().startsWith("Keyword {fact} in line "), streaming.getMessage());
+        for (int parallelism : POOL_SIZES) {
+            assertEquals(streaming.getMessage(), parallelFailure(file, parallelism));
+        }
+    }
+
+    @Test
+    void smallestDuplicatedCellIsReported() throws IOException {
+        String[] lines = probLines();
+        lines[cell(46, FACTS)] = lines[cell(3, 6)];
+        lines[cell(31, 101)] = lines[cell(2, 3)];
+        Path file = write("duplicated.txt", lines);
+        for (int parallelism : POOL_SIZES) {
+            for (int round = 0; round < 3; ++round) {
+                assertEquals("Cell [2; 3] of the table is given more than once (lines «prob»).",
+                        parallelFailure(file, parallelism));
+            }
+        }
+    }
+
+    @Test
+    void smallestMissingCellIsReported() throws IOException {
+        String[] lines = probLines();
+        lines[cell(46, 101)] = null;
+        lines[cell(3, 6)] = null;
+        Path file = write("missing.txt", lines);
+        for (int parallelism : POOL_SIZES) {
+            for (int round = 0; round < 3; ++round) {
+                assertEquals("Cell [3; 6] of the table is missing (lines «prob»).",
+                        parallelFailure(file, parallelism));
+            }
+        }
+    }
+}
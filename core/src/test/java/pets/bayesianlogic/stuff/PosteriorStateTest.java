@@ -0,0 +1,76 @@
+package pets.bayesianlogic.stuff;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The updatable posterior against the full recomputation: observations, retractions and {@code resync()},
+ * including the impossible observations (log = -∞).
+ * @author Kolesnikov Stephan
+ */
+class PosteriorStateTest {
+
+    private static final double ROUNDING = 1e-12;
+
+    private static LogSpaceEngine engine(double[] priors, double[][] cells) {
+        ProbabilityModel model = new ProbabilityModel(priors.length, cells[0].length);
+        for (int i = 0; i < priors.length; ++i) {
+            model.setPrior(i, priors[i]);
+            for (int j = 0; j < cells[i].length; ++j) { model.set(i, j, cells[i][j]); }
+        }
+        return new LogSpaceEngine(model);
+    }
+
+    @Test
+    void retractAfterResyncRestoresImpossibleHypothesis() {
+        LogSpaceEngine engine = engine(new double[]{0.5, 0.5}, new double[][]{{1.0, 0.1}, {0.5, 0.9}});
+        PosteriorState state = engine.newPosteriorState();
+        state.observe(1, FactState.PRESENT);
+        state.observe(0, FactState.ABSENT);
+        assertArrayEquals(new double[]{0.0, 1.0}, state.posteriors(), ROUNDING);
+
+        state.resync();
+        assertArrayEquals(new double[]{0.0, 1.0}, state.posteriors(), ROUNDING);
+        state.retract(0);
+        assertArrayEquals(new double[]{0.1, 0.9}, state.posteriors(), ROUNDING);
+    }
+
+    @Test
+    void zeroPriorStaysImpossibleAfterResync() {
+        LogSpaceEngine engine = engine(new double[]{0.0, 0.4, 0.6}, new double[][]{{1.0, 0.5}, {0.2, 0.5}, {0.7, 0.5}});
+        PosteriorState state = engine.newPosteriorState();
+        state.observe(0, FactState.ABSENT);
+        state.resync();
+        state.retract(0);
+        assertArrayEquals(new double[]{0.0, 0.4, 0.6}, state.posteriors(), ROUNDING);
+    }
+
+    @Test
+    void randomWalkMatchesFullRecomputation() {
+        int hypos = 20;
+        int facts = 60;
+        double[] cells = TestModels.randomCells(hypos, facts, 3, 2.0);
+        double[][] rows = new double[hypos][facts];
+        double[] priors = new double[hypos];
+        for (int i = 0; i < hypos; ++i) {
+            priors[i] = 1.0 / hypos;
+            System.arraycopy(cells, i * facts, rows[i], 0, facts);
+        }
+        rows[4][7] = 1.0;
+        rows[9][7] = 1.0;
+        LogSpaceEngine engine = engine(priors, rows);
+
+        PosteriorState state = engine.newPosteriorState();
+        SplittableRandom random = new SplittableRandom(29);
+        for (int step = 1; step <= 2000; ++step) {
+            state.observe(random.nextInt(facts), FactState.values()[random.nextInt(3)]);
+            if (step % 97 == 0) { state.resync(); }
+            if (step % 50 == 0) {
+                assertArrayEquals(engine.posteriors(state.toEvidence()), state.posteriors(), ROUNDING, "step " + step);
+            }
+        }
+    }
+}
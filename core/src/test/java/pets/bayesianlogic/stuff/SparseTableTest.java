@@ -0,0 +1,151 @@
+package pets.bayesianlogic.stuff;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pets.bayesianlogic.except.CrashException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A sparse table (lines «prob_default») against the same table written densely: the same cells,
+ * posteriors and ranking, and the cells of a hypothesis without a default are still required.
+ * @author Kolesnikov Stephan
+ */
+class SparseTableTest {
+
+    private static final int HYPOS = 30;
+    private static final int FACTS = 300;
+
+    /**
+     * Slack for the rounding of the two different summation orders.
+     */
+    private static final double ROUNDING = 1e-12;
+
+    /**
+     * Own defaults of the hypotheses ({@code NaN}: the global one, or none).
+     */
+    private final double[] defaults = new double[HYPOS];
+
+    /**
+     * Explicit cells ({@code NaN}: not given by «prob»).
+     */
+    private final double[] explicit = new double[HYPOS * FACTS];
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Hypothesis 1 has every cell explicit, the even ones have own defaults, the rest take the global default;
+     * every hypothesis with a default has a few explicit cells.
+     */
+    private void randomSparseTable(double globalDefault) {
+        SplittableRandom random = new SplittableRandom(17);
+        Arrays.fill(this.explicit, Double.NaN);
+        for (int i = 0; i < HYPOS; ++i) {
+            this.defaults[i] = i > 0 && i % 2 == 0 ? TestModels.round(0.05 + 0.5 * random.nextDouble()) : Double.NaN;
+            boolean full = i == 0 || Double.isNaN(this.defaults[i]) && Double.isNaN(globalDefault);
+            for (int j = 0; j < FACTS; ++j) {
+                if (full || random.nextInt(10) == 0) { this.explicit[i * FACTS + j] = TestModels.round(0.01 + 0.98 * random.nextDouble()); }
+            }
+        }
+    }
+
+    private double cell(int hypo, int fact, double globalDefault) {
+        double value = this.explicit[hypo * FACTS + fact];
+        if (!Double.isNaN(value)) { return value; }
+        return Double.isNaN(this.defaults[hypo]) ? globalDefault : this.defaults[hypo];
+    }
+
+    private Path writeSparse(String name, double globalDefault) throws IOException {
+        Path file = this.dir.resolve(name);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            TestModels.writeHeader(out, HYPOS, FACTS);
+            if (!Double.isNaN(globalDefault)) { out.write("prob_default;" + globalDefault + "\n"); }
+            for (int i = 0; i < HYPOS; ++i) {
+                if (!Double.isNaN(this.defaults[i])) { out.write("prob_default;" + (i + 1) + ";" + this.defaults[i] + "\n"); }
+            }
+            for (int k = 0; k < this.explicit.length; ++k) {
+                if (!Double.isNaN(this.explicit[k])) { out.write(TestModels.probLine(k / FACTS, k % FACTS, this.explicit[k])); }
+            }
+        }
+        return file;
+    }
+
+    private Path writeDense(String name, double globalDefault) throws IOException {
+        double[] cells = new double[HYPOS * FACTS];
+        for (int k = 0; k < cells.length; ++k) { cells[k] = cell(k / FACTS, k % FACTS, globalDefault); }
+        return TestModels.writeDense(this.dir.resolve(name), HYPOS, FACTS, cells);
+    }
+
+    private static BayesianBody loadParallel(Path file) throws IOException {
+        BayesianBody body = new BayesianBody(file);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            body.readAllParallel(null, pool);
+        } finally {
+            pool.shutdown();
+        }
+        return body;
+    }
+
+    private static void assertSameModel(BayesianBody dense, BayesianBody sparse) throws IOException {
+        double[][] denseTable = dense.getDeepClonedProbabilityTable();
+        double[][] sparseTable = sparse.getDeepClonedProbabilityTable();
+        for (int i = 0; i < HYPOS; ++i) { assertArrayEquals(denseTable[i], sparseTable[i], "row " + i); }
+
+        CompiledBayesianModel denseModel = dense.compile();
+        CompiledBayesianModel sparseModel = sparse.compile();
+        for (long seed = 1; seed <= 5; ++seed) {
+            Evidence evidence = TestModels.randomEvidence(FACTS, seed);
+            assertArrayEquals(denseModel.posteriors(evidence), sparseModel.posteriors(evidence), ROUNDING,
+                    "evidence " + seed);
+            List<RankedHypothesis> denseTop = denseModel.topK(5, evidence);
+            List<RankedHypothesis> sparseTop = sparseModel.topK(5, evidence);
+            for (int k = 0; k < denseTop.size(); ++k) {
+                assertEquals(denseTop.get(k).index(), sparseTop.get(k).index(), "place " + k + ", evidence " + seed);
+            }
+        }
+        assertArrayEquals(denseModel.posteriors(Evidence.allPresent(FACTS)),
+                sparseModel.posteriors(Evidence.allPresent(FACTS)), ROUNDING);
+    }
+
+    @Test
+    void ownDefaultsGiveTheDenseResults() throws IOException {
+        randomSparseTable(Double.NaN);
+        BayesianBody dense = TestModels.load(writeDense("dense.txt", Double.NaN));
+        Path sparse = writeSparse("sparse.txt", Double.NaN);
+        assertSameModel(dense, TestModels.load(sparse));
+        assertSameModel(dense, loadParallel(sparse));
+    }
+
+    @Test
+    void globalDefaultGivesTheDenseResults() throws IOException {
+        randomSparseTable(0.2);
+        BayesianBody dense = TestModels.load(writeDense("dense.txt", 0.2));
+        Path sparse = writeSparse("sparse.txt", 0.2);
+        assertSameModel(dense, TestModels.load(sparse));
+        assertSameModel(dense, loadParallel(sparse));
+    }
+
+    @Test
+    void hypothesisWithoutDefaultNeedsEveryCell() throws IOException {
+        randomSparseTable(Double.NaN);
+        this.explicit[6] = Double.NaN;
+        Path sparse = writeSparse("sparse.txt", Double.NaN);
+        CrashException streaming = assertThrows(CrashException.class, () -> TestModels.load(sparse));
+        assertTrue(streaming.getMessage().contains("Missing cells (1) [hypothesis; fact]: [1; 7]"),
+                streaming.getMessage());
+        CrashException parallel = assertThrows(CrashException.class, () -> loadParallel(sparse));
+        assertEquals(streaming.getMessage(), parallel.getMessage());
+    }
+}
@@ -0,0 +1,102 @@
+package pets.bayesianlogic.stuff;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Model files for the tests: dense or sparse tables with reproducible random values (fixed seeds).
+ * @author Kolesnikov Stephan
+ */
+final class TestModels {
+
+    private TestModels() {}
+
+    /**
+     * Random cells of a dense table: {@code skew > 1} pushes the values to the ends of (0.01; 0.99),
+     * so some hypotheses become hopeless quickly (the pruned inference has something to drop).
+     * @return row-major cells.
+     */
+    static double[] randomCells(int hypos, int facts, long seed, double skew) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] cells = new double[hypos * facts];
+        for (int k = 0; k < cells.length; ++k) {
+            double u = random.nextDouble();
+            double shaped = u < 0.5 ? 0.5 * Math.pow(2 * u, skew) : 1 - 0.5 * Math.pow(2 - 2 * u, skew);
+            cells[k] = round(0.01 + 0.98 * shaped);
+        }
+        return cells;
+    }
+
+    /**
+     * Writes the header: thesis, hypotheses with equal chances (the last one takes the rest), facts.
+     */
+    static void writeHeader(BufferedWriter out, int hypos, int facts) throws IOException {
+        out.write("main_thesis;Test model " + hypos + " x " + facts + "\n");
+        out.write("hypos_count;" + hypos + "\n");
+        BigDecimal chance = BigDecimal.ONE.divide(BigDecimal.valueOf(hypos), 12, java.math.RoundingMode.DOWN);
+        BigDecimal rest = BigDecimal.ONE.subtract(chance.multiply(BigDecimal.valueOf(hypos - 1)));
+        for (int i = 0; i < hypos; ++i) {
+            out.write("hypo;H" + (i + 1) + "\n");
+            out.write("hypo_chance;" + (i == hypos - 1 ? rest : chance).toPlainString() + "\n");
+        }
+        out.write("facts_count;" + facts + "\n");
+        for (int j = 0; j < facts; ++j) {
+            out.write("fact;F" + (j + 1) + "\n");
+        }
+    }
+
+    /**
+     * Writes a dense model: every cell is a «prob» line.
+     */
+    static Path writeDense(Path file, int hypos, int facts, double[] cells) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeHeader(out, hypos, facts);
+            for (int i = 0; i < hypos; ++i) {
+                for (int j = 0; j < facts; ++j) {
+                    out.write(probLine(i, j, cells[i * facts + j]));
+                }
+            }
+        }
+        return file;
+    }
+
+    /**
+     * @return «prob» line of the zero-based cell.
+     */
+    static String probLine(int hypo, int fact, double probability) {
+        return "prob;" + (hypo + 1) + ";" + (fact + 1) + ";" + probability + "\n";
+    }
+
+    /**
+     * Reads a model file with the single-pass reader.
+     */
+    static BayesianBody load(Path file) throws IOException {
+        BayesianBody body = new BayesianBody(file);
+        body.readAllStreaming(null);
+        return body;
+    }
+
+    /**
+     * Random evidence: every fact is present, absent or unknown with equal chances.
+     */
+    static Evidence randomEvidence(int facts, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        FactState[] states = new FactState[facts];
+        for (int j = 0; j < facts; ++j) {
+            states[j] = FactState.values()[random.nextInt(3)];
+        }
+        return Evidence.of(states);
+    }
+
+    /**
+     * Three decimal digits: the values are written and read back exactly as the same doubles.
+     */
+    static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,283 @@
+package pets.bayesianlogic.logger;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Asynchronous handler: records are put into a bounded ring buffer and written to the target handler
+ * (for example, {@code FileHandler} with JSON-formatting) by a background writer thread.
+ * So the file I/O and the lock of the target handler are taken off the calling thread. <br>
+ * When the buffer is full, the {@link OverflowPolicy} decides what happens with the record. <br>
+ * {@code close()} (also called by the {@code LogManager} at JVM shutdown) drains the buffer,
+ * stops the writer and closes the target. Attention: the caller of a record is NOT inferred by this handler,
+ * formatters that print the source class/method would see the writer thread.
+ * @author Kolesnikov Stephan
+ */
+public class AsyncRingBufferHandler extends Handler {
+
+    /**
+     * What to do with a record when the ring buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The calling thread waits for free space (nothing is lost).
+         */
+        BLOCK,
+
+        /**
+         * Records below {@code INFO} (FINE, FINER...) are dropped, the others wait.
+         */
+        DROP_FINE,
+
+        /**
+         * Only every N-th record below {@code INFO} waits for space, the rest of them are dropped;
+         * records of {@code INFO} and above always wait.
+         */
+        SAMPLE
+    }
+
+    /**
+     * Maximum amount of records the writer takes from the buffer at once.
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * Handler that really writes the records.
+     */
+    private final Handler target;
+
+    /**
+     * Ring buffer of records.
+     */
+    private final LogRecord[] ring;
+
+    /**
+     * Index of the oldest record in the ring.
+     */
+    private int head = 0;
+
+    /**
+     * Amount of records in the ring.
+     */
+    private int size = 0;
+
+    /**
+     * Amount of records taken by the writer, but not yet written.
+     */
+    private int inFlight = 0;
+
+    /**
+     * Counter of overflows for the {@code SAMPLE} policy.
+     */
+    private long overflows = 0;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition idle = lock.newCondition();
+
+    /**
+     * Policy for the full buffer.
+     */
+    private final OverflowPolicy policy;
+
+    /**
+     * For the {@code SAMPLE} policy: one of {@code sampleRate} low-level records is kept.
+     */
+    private final int sampleRate;
+
+    /**
+     * Amount of dropped records.
+     */
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * Flag of the closed handler (new records are ignored).
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * Background writer thread (started by the first record, <code>null</code> before it).
+     */
+    private Thread writer = null;
+
+    /**
+     * @param target handler that really writes the records (closed together with this one).
+     * @param capacity size of the ring buffer.
+     * @param policy policy for the full buffer.
+     * @param sampleRate for {@code SAMPLE}: one of {@code sampleRate} low-level records is kept (at least 1).
+     */
+    public AsyncRingBufferHandler(Handler target, int capacity, OverflowPolicy policy, int sampleRate) {
+        if (capacity <= 0) {
+            throw new LogException("Capacity of the ring buffer must be positive: " + capacity);
+        }
+        this.target = target;
+        this.ring = new LogRecord[capacity];
+        this.policy = policy;
+        this.sampleRate = Math.max(1, sampleRate);
+    }
+
+    /**
+     * @param target handler that really writes the records.
+     * @param capacity size of the ring buffer.
+     * @param policy policy for the full buffer (for {@code SAMPLE} one of 16 records is kept).
+     */
+    public AsyncRingBufferHandler(Handler target, int capacity, OverflowPolicy policy) {
+        this(target, capacity, policy, 16);
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) { return; }
+
+        lock.lock();
+        try {
+            if (size == ring.length && record.getLevel().intValue() < Level.INFO.intValue()) {
+                boolean drop = switch (policy) {
+                    case BLOCK -> false;
+                    case DROP_FINE -> true;
+                    case SAMPLE -> overflows++ % sampleRate != 0;
+                };
+                if (drop) {
+                    dropped.increment();
+                    return;
+                }
+            }
+
+            while (size == ring.length) {
+                if (closed) { return; }
+                notFull.awaitUninterruptibly();
+            }
+
+            ring[(head + size) % ring.length] = record;
+            size++;
+            startWriterIfNeeded();
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every record accepted before the call is written, then flushes the target.
+     */
+    @Override
+    public void flush() {
+        lock.lock();
+        try {
+            while ((size > 0 || inFlight > 0) && writer != null && writer.isAlive()) {
+                idle.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+        target.flush();
+    }
+
+    /**
+     * Drains the buffer, stops the writer and closes the target handler (repeated calls do nothing).
+     */
+    @Override
+    public void close() throws SecurityException {
+        Thread started;
+        lock.lock();
+        try {
+            if (closed) { return; }
+            closed = true;
+            started = writer;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        if (started != null) {
+            try {
+                started.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        target.close();
+    }
+
+    /**
+     * Starts the writer thread with the first record (not in the constructor, where {@code this}
+     * would escape to the thread before a subclass is initialized). Called under the lock.
+     */
+    private void startWriterIfNeeded() {
+        if (writer != null) { return; }
+        writer = new Thread(this::drainLoop, "bayesian-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Getter of the amount of records dropped by the overflow policy.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Getter of the overflow policy.
+     */
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Loop of the writer thread: takes records in batches and publishes them to the target.
+     */
+    private void drainLoop() {
+        LogRecord[] batch = new LogRecord[Math.min(BATCH_SIZE, ring.length)];
+
+        while (true) {
+            int taken;
+            lock.lock();
+            try {
+                while (size == 0 && !closed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (size == 0) { return; }     // closed and drained.
+
+                taken = Math.min(size, batch.length);
+                for (int k = 0; k < taken; ++k) {
+                    batch[k] = ring[head];
+                    ring[head] = null;
+                    head = (head + 1) % ring.length;
+                }
+                size -= taken;
+                inFlight = taken;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            for (int k = 0; k < taken; ++k) {
+                try {
+                    target.publish(batch[k]);
+                } catch (RuntimeException e) {
+                    reportError("Asynchronous publishing failure.", e, ErrorManager.WRITE_FAILURE);
+                }
+                batch[k] = null;
+            }
+
+            boolean drained;
+            lock.lock();
+            try {
+                inFlight = 0;
+                drained = size == 0;
+                if (drained) { idle.signalAll(); }
+            } finally {
+                lock.unlock();
+            }
+            if (drained) { target.flush(); }
+        }
+    }
+}
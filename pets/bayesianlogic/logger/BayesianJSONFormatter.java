@@ -1,23 +1,124 @@
 package pets.bayesianlogic.logger;
 
-import java.time.LocalDateTime;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.logging.Formatter;
 import java.util.logging.LogRecord;
 
 /**
- * Class implementing formatter for file logs. Overrides {@code format(LogRecord record)} method for JSON.
+ * Class implementing formatter for file logs. Overrides {@code format(LogRecord record)} method for JSON.<br>
+ * The formatter is made for the hot path of logging: the line is built in a per-thread reused
+ * {@code StringBuilder} (no {@code String.format}), the time is taken from the record itself
+ * ({@code LogRecord.getInstant()}) and its text is formatted once per second,
+ * all strings are escaped for JSON in a single pass.
  */
 public class BayesianJSONFormatter extends Formatter {
+
+    /**
+     * Pattern of the time field (the same as before: local time of the system zone).
+     */
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("MM-dd-yyyy'T'HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    /**
+     * Builder larger than this is not kept for reuse (one huge message must not hold memory forever).
+     */
+    private static final int MAX_KEPT_CAPACITY = 16 * 1024;
+
+    /**
+     * Reused builder of every thread.
+     */
+    private static final ThreadLocal<StringBuilder> BUILDER =
+            ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    /**
+     * Line separator (as {@code %n} in the previous format).
+     */
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    /**
+     * Time text of one second.
+     * @param epochSecond second since the epoch.
+     * @param text formatted time.
+     */
+    private record CachedSecond(long epochSecond, String text) {}
+
+    /**
+     * The last formatted second (immutable holder, so the reading threads need no lock).
+     */
+    private volatile CachedSecond cachedSecond = new CachedSecond(Long.MIN_VALUE, "");
+
     @Override
     public String format(LogRecord rec) {
-        return String.format("{\"localdate\":\"%s\",\"lvl\":\"%s\"," +
-                        "\"loggername\":\"%s\",\"message\":\"%s\",\"thrown\":\"%s\"}%n",
-                LocalDateTime.now().format(
-                        DateTimeFormatter.ofPattern("MM-dd-yyyy'T'HH:mm:ss")),
-                rec.getLevel(),
-                rec.getLoggerName(),
-                rec.getMessage(),
-                rec.getThrown() != null ? rec.getThrown().toString() : "");
+        StringBuilder sb = BUILDER.get();
+        if (sb.capacity() > MAX_KEPT_CAPACITY) {
+            sb = new StringBuilder(256);
+            BUILDER.set(sb);
+        }
+        sb.setLength(0);
+
+        sb.append("{\"localdate\":\"").append(timeOf(rec.getInstant()))
+                .append("\",\"lvl\":\"");
+        appendEscaped(sb, rec.getLevel().getName());
+        sb.append("\",\"loggername\":\"");
+        appendEscaped(sb, rec.getLoggerName());
+        sb.append("\",\"message\":\"");
+        appendEscaped(sb, rec.getMessage());
+        sb.append("\",\"thrown\":\"");
+        if (rec.getThrown() != null) {
+            appendEscaped(sb, rec.getThrown().toString());
+        }
+        sb.append("\"}").append(LINE_SEPARATOR);
+
+        return sb.toString();
+    }
+
+    /**
+     * Text of the time, formatted once per second.
+     */
+    private String timeOf(Instant instant) {
+        CachedSecond cached = this.cachedSecond;
+        if (cached.epochSecond() != instant.getEpochSecond()) {
+            cached = new CachedSecond(instant.getEpochSecond(), TIME_FORMAT.format(instant));
+            this.cachedSecond = cached;
+        }
+        return cached.text();
+    }
+
+    /**
+     * Appends the string with JSON escaping ({@code "}, {@code \}, control symbols) in a single pass.
+     * @param sb builder of the line.
+     * @param value string (<code>null</code> is written as {@code null}, as before).
+     */
+    static void appendEscaped(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+
+        int copiedUpTo = 0;
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            if (c != '"' && c != '\\' && c >= 0x20) { continue; }
+
+            // Unchanged part is appended at once.
+            sb.append(value, copiedUpTo, i);
+            copiedUpTo = i + 1;
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                case '\b' -> sb.append("\\b");
+                case '\f' -> sb.append("\\f");
+                default -> {
+                    sb.append("\\u00");
+                    sb.append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                }
+            }
+        }
+        sb.append(value, copiedUpTo, value.length());
     }
 }
@@ -5,6 +5,7 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Locale;
 
 /**
  * A special class for initializing a logger that uses JSON formatting.
@@ -17,29 +18,92 @@ public class LoggerForBayesian {
     private LoggerForBayesian() {}
 
     /**
+     * Name of the system property with the policy of the full log buffer:
+     * {@code BLOCK} (by default), {@code DROP_FINE} or {@code SAMPLE}.
+     */
+    public static final String OVERFLOW_POLICY_PROPERTY = "pets.bayesianlogic.log.overflow";
+
+    /**
+     * Name of the system property that allows the console handlers: set it to {@code false}
+     * to keep the console quiet (tests, benchmarks), the log file is written anyway.
+     */
+    public static final String CONSOLE_PROPERTY = "pets.bayesianlogic.log.console";
+
+    /**
+     * Name of the system property with the lowest level written by the handlers ({@code FINE} by default).
+     * The level of the logger itself is set by its users, so the handlers filter the records.
+     */
+    public static final String LEVEL_PROPERTY = "pets.bayesianlogic.log.level";
+
+    /**
+     * Size of the ring buffer of the asynchronous file handler.
+     */
+    private static final int FILE_BUFFER_CAPACITY = 8192;
+
+    /**
+     * The file handler is asynchronous, its policy of the full buffer is taken
+     * from the property {@link #OVERFLOW_POLICY_PROPERTY}.
      * @param className className name of the class calling the logger.
      * @param willConsoleLogging a boolean value that confirms cataloging by the console.
      * @return ready-to-use logger.
      */
     public static Logger init(Class<?> className, boolean willConsoleLogging) {
+        AsyncRingBufferHandler.OverflowPolicy policy;
+        try {
+            policy = AsyncRingBufferHandler.OverflowPolicy.valueOf(
+                    System.getProperty(OVERFLOW_POLICY_PROPERTY, "BLOCK").trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new LogException("Unknown log overflow policy: " + System.getProperty(OVERFLOW_POLICY_PROPERTY));
+        }
+        return init(className, willConsoleLogging, policy);
+    }
+
+    /**
+     * The file handler works asynchronously: records go to a bounded ring buffer,
+     * and a background thread writes them to the file (see {@link AsyncRingBufferHandler}).
+     * If the logger of the class was already initialized, its file handler is reused
+     * (otherwise every new object would add one more file handler and one more writer thread);
+     * only the console handler is added, if it is requested now, but was not requested before.
+     * The console handler is never added, if the property {@link #CONSOLE_PROPERTY} is {@code false};
+     * the handlers write the records of the level {@link #LEVEL_PROPERTY} and above.
+     * @param className className name of the class calling the logger.
+     * @param willConsoleLogging a boolean value that confirms cataloging by the console.
+     * @param policy what to do with a record when the buffer of the file handler is full.
+     * @return ready-to-use logger.
+     */
+    public static synchronized Logger init(Class<?> className, boolean willConsoleLogging,
+                                           AsyncRingBufferHandler.OverflowPolicy policy) {
+        willConsoleLogging &= Boolean.parseBoolean(System.getProperty(CONSOLE_PROPERTY, "true"));
+        Level handlersLevel;
+        try {
+            handlersLevel = Level.parse(System.getProperty(LEVEL_PROPERTY, "FINE").trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new LogException("Unknown log level: " + System.getProperty(LEVEL_PROPERTY));
+        }
         Logger logger = Logger.getLogger(className.getName());
+        if (logger.getHandlers().length > 0) {
+            if (willConsoleLogging && !hasConsoleHandler(logger)) {
+                logger.addHandler(consoleHandler(handlersLevel));
+            }
+            return logger;
+        }
 
         logger.setUseParentHandlers(false);
         logger.setLevel(Level.FINE);
 
         try {
-            // fh = file handler, with JSON-formatting.
+            // fh = file handler, with JSON-formatting, behind the ring buffer.
+            Files.createDirectories(Paths.get("logs"));
             FileHandler fh = new FileHandler("logs/bayes.json", true);
             fh.setFormatter(new BayesianJSONFormatter());
-            fh.setLevel(Level.FINE);
-            logger.addHandler(fh);
+            fh.setLevel(handlersLevel);
+
+            AsyncRingBufferHandler ah = new AsyncRingBufferHandler(fh, FILE_BUFFER_CAPACITY, policy);
+            ah.setLevel(handlersLevel);
+            logger.addHandler(ah);
 
             if (willConsoleLogging) {
-                // ch = console handler, with classic-bayesian formatting.
-                ConsoleHandler ch = new ConsoleHandler();
-                ch.setFormatter(new BayesianFormatter());
-                ch.setLevel(Level.FINE);
-                logger.addHandler(ch);
+                logger.addHandler(consoleHandler(handlersLevel));
             }
         } catch (IOException e) {
             throw new LogException("Failed to initialize logging: " + e.getMessage());
@@ -48,6 +112,24 @@ public class LoggerForBayesian {
         return logger;
     }
 
+    /**
+     * @param level the lowest level of the written records.
+     * @return console handler, with classic-bayesian formatting.
+     */
+    private static ConsoleHandler consoleHandler(Level level) {
+        ConsoleHandler ch = new ConsoleHandler();
+        ch.setFormatter(new BayesianFormatter());
+        ch.setLevel(level);
+        return ch;
+    }
+
+    private static boolean hasConsoleHandler(Logger logger) {
+        for (Handler handler : logger.getHandlers()) {
+            if (handler instanceof ConsoleHandler) { return true; }
+        }
+        return false;
+    }
+
     /**
      * Unsuccessful attempt to create a specialized config file to start logging.
      * I gave up on this idea, because I wanted to understand the problem for a long time,
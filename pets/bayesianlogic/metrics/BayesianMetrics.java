@@ -0,0 +1,231 @@
+package pets.bayesianlogic.metrics;
+
+import pets.bayesianlogic.logger.LoggerForBayesian;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Process-wide runtime metrics of the project: counters and latency histograms of loads, validation,
+ * inference and rendering, and the behaviour of the posterior and model caches. <br>
+ * The instance of {@code shared()} is registered in the platform MBean server as {@value #OBJECT_NAME}
+ * (see {@link BayesianMetricsMXBean}), so it is visible in JConsole, VisualVM, or any JMX exporter.
+ * Set the system property {@value #JMX_PROPERTY} to {@code false} to keep the metrics off the MBean server. <br>
+ * The recording methods are made for the hot path: they only add to {@link LongAdder}-striped counters,
+ * the sums are taken when the metrics are read.
+ * @author Kolesnikov Stephan
+ */
+public final class BayesianMetrics implements BayesianMetricsMXBean {
+
+    /**
+     * Object name of the registered MBean.
+     */
+    public static final String OBJECT_NAME = "pets.bayesianlogic:type=BayesianMetrics";
+
+    /**
+     * Name of the system property that switches the registration in the MBean server ({@code true} by default).
+     */
+    public static final String JMX_PROPERTY = "pets.bayesianlogic.jmx";
+
+    private final LongAdder loadsStarted = new LongAdder();
+    private final LongAdder loadsCompleted = new LongAdder();
+    private final LongAdder linesParsed = new LongAdder();
+    private final LongAdder posteriorCacheHits = new LongAdder();
+    private final LongAdder posteriorCacheMisses = new LongAdder();
+    private final LongAdder modelCacheHits = new LongAdder();
+    private final LongAdder modelCacheMisses = new LongAdder();
+    private final LongAdder modelCacheEvictions = new LongAdder();
+
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+    private final LatencyHistogram validationLatency = new LatencyHistogram();
+    private final LatencyHistogram inferenceLatency = new LatencyHistogram();
+    private final LatencyHistogram renderLatency = new LatencyHistogram();
+
+    /**
+     * Lazy holder of the shared instance (it is registered on the first use).
+     */
+    private static final class SharedHolder {
+        private static final BayesianMetrics INSTANCE = new BayesianMetrics().register();
+    }
+
+    /**
+     * The constructor creates metrics that are NOT registered anywhere (for example, for a test or a separate
+     * component); the project itself records into {@code shared()}.
+     */
+    public BayesianMetrics() {}
+
+    /**
+     * @return the process-wide metrics (registered in the platform MBean server, unless it is switched off).
+     */
+    public static BayesianMetrics shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    /**
+     * Registration in the platform MBean server. A failure (for example, the name is taken by another
+     * class loader) is only logged: the metrics are still recorded and readable from the code.
+     */
+    private BayesianMetrics register() {
+        if (!Boolean.parseBoolean(System.getProperty(JMX_PROPERTY, "true"))) { return this; }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(this, new javax.management.ObjectName(OBJECT_NAME));
+        } catch (Exception | LinkageError e) {
+            Logger toLog = LoggerForBayesian.init(BayesianMetrics.class, false);
+            toLog.log(Level.WARNING, "Metrics were not registered as " + OBJECT_NAME + ".", e);
+        }
+        return this;
+    }
+
+//  ============================================================================================================
+//  🔸— «RECORDING (hot path)»
+//  ============================================================================================================
+
+    /**
+     * Marks the start of a load.
+     * @return start moment for {@code loadCompleted(long)} (value of {@code System.nanoTime()}).
+     */
+    public long loadStarted() {
+        this.loadsStarted.increment();
+        return System.nanoTime();
+    }
+
+    /**
+     * Marks the successful end of a load.
+     * @param startNanos value of {@code loadStarted()}.
+     */
+    public void loadCompleted(long startNanos) {
+        this.loadLatency.recordSince(startNanos);
+        this.loadsCompleted.increment();
+    }
+
+    /**
+     * Adds the lines passed by a reader (once per pass, not per line).
+     */
+    public void linesParsed(long lines) {
+        this.linesParsed.add(lines);
+    }
+
+    public void validated(long startNanos) {
+        this.validationLatency.recordSince(startNanos);
+    }
+
+    public void inferred(long startNanos) {
+        this.inferenceLatency.recordSince(startNanos);
+    }
+
+    public void rendered(long startNanos) {
+        this.renderLatency.recordSince(startNanos);
+    }
+
+    public void posteriorCacheHit() {
+        this.posteriorCacheHits.increment();
+    }
+
+    public void posteriorCacheMiss() {
+        this.posteriorCacheMisses.increment();
+    }
+
+    public void modelCacheHit() {
+        this.modelCacheHits.increment();
+    }
+
+    public void modelCacheMiss() {
+        this.modelCacheMisses.increment();
+    }
+
+    public void modelCacheEviction() {
+        this.modelCacheEvictions.increment();
+    }
+
+//  ============================================================================================================
+//  🔸— «READING (MXBean)»
+//  ============================================================================================================
+
+    @Override
+    public long getLoadsStarted() {
+        return this.loadsStarted.sum();
+    }
+
+    @Override
+    public long getLoadsCompleted() {
+        return this.loadsCompleted.sum();
+    }
+
+    @Override
+    public long getLinesParsed() {
+        return this.linesParsed.sum();
+    }
+
+    @Override
+    public LatencySnapshot getLoadLatency() {
+        return this.loadLatency.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getValidationLatency() {
+        return this.validationLatency.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getInferenceLatency() {
+        return this.inferenceLatency.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getRenderLatency() {
+        return this.renderLatency.snapshot();
+    }
+
+    @Override
+    public long getPosteriorCacheHits() {
+        return this.posteriorCacheHits.sum();
+    }
+
+    @Override
+    public long getPosteriorCacheMisses() {
+        return this.posteriorCacheMisses.sum();
+    }
+
+    @Override
+    public long getModelCacheHits() {
+        return this.modelCacheHits.sum();
+    }
+
+    @Override
+    public long getModelCacheMisses() {
+        return this.modelCacheMisses.sum();
+    }
+
+    @Override
+    public long getModelCacheEvictions() {
+        return this.modelCacheEvictions.sum();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder counter : new LongAdder[]{ this.loadsStarted, this.loadsCompleted, this.linesParsed,
+                this.posteriorCacheHits, this.posteriorCacheMisses,
+                this.modelCacheHits, this.modelCacheMisses, this.modelCacheEvictions }) {
+            counter.reset();
+        }
+        for (LatencyHistogram histogram : new LatencyHistogram[]{ this.loadLatency, this.validationLatency,
+                this.inferenceLatency, this.renderLatency }) {
+            histogram.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BayesianMetrics{loads=" + getLoadsCompleted() + "/" + getLoadsStarted()
+                + ", lines=" + getLinesParsed()
+                + ", load=[" + getLoadLatency() + "], validation=[" + getValidationLatency()
+                + "], inference=[" + getInferenceLatency() + "], render=[" + getRenderLatency()
+                + "], posteriorCache=" + getPosteriorCacheHits() + "/" + getPosteriorCacheMisses()
+                + ", modelCache=" + getModelCacheHits() + "/" + getModelCacheMisses()
+                + "/" + getModelCacheEvictions() + "}";
+    }
+}
@@ -0,0 +1,71 @@
+package pets.bayesianlogic.metrics;
+
+/**
+ * Management interface of the process-wide metrics (see {@link BayesianMetrics}),
+ * registered as {@value BayesianMetrics#OBJECT_NAME}. <br>
+ * "Load" is any read of a model ({@code readAll*}, {@code readBinary}, {@code read*} of the parts);
+ * a load that has started but is not completed has failed or is still in progress.
+ * @author Kolesnikov Stephan
+ */
+public interface BayesianMetricsMXBean {
+
+    /**
+     * @return amount of started loads.
+     */
+    long getLoadsStarted();
+
+    /**
+     * @return amount of completed (successful) loads.
+     */
+    long getLoadsCompleted();
+
+    /**
+     * @return amount of lines of model files passed by the text readers.
+     */
+    long getLinesParsed();
+
+    /**
+     * @return durations of the completed loads.
+     */
+    LatencySnapshot getLoadLatency();
+
+    /**
+     * @return durations of the validations of the table ({@code validateTable()}).
+     */
+    LatencySnapshot getValidationLatency();
+
+    /**
+     * @return durations of the inference of one evidence ({@code getPosteriorArray}, {@code getInferenceResult}),
+     *         hits of the posterior cache included.
+     */
+    LatencySnapshot getInferenceLatency();
+
+    /**
+     * @return durations of the rendering of results ({@code renderResult}, {@code getStringResult}).
+     */
+    LatencySnapshot getRenderLatency();
+
+    long getPosteriorCacheHits();
+
+    long getPosteriorCacheMisses();
+
+    /**
+     * @return hits of all the model caches ({@code ModelCache}) of the process.
+     */
+    long getModelCacheHits();
+
+    /**
+     * @return misses (that is, loads) of all the model caches of the process.
+     */
+    long getModelCacheMisses();
+
+    /**
+     * @return evictions of all the model caches of the process.
+     */
+    long getModelCacheEvictions();
+
+    /**
+     * Clears all counters and histograms.
+     */
+    void reset();
+}
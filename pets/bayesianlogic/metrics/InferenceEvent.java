@@ -0,0 +1,54 @@
+package pets.bayesianlogic.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event of the inference of one evidence pattern ({@code getPosteriorArray}, {@code getInferenceResult}).
+ * The inference is the hot path, so the default threshold is 1 ms: a continuous recording keeps only the spikes
+ * (set {@code threshold=0 ms} of the event in the settings to see every call).
+ * @author Kolesnikov Stephan
+ */
+@Name("pets.bayesianlogic.Inference")
+@Label("Inference")
+@Category({"Bayesian Logic"})
+@Description("Posteriors of one evidence pattern, computed or taken from the posterior cache.")
+@Threshold("1 ms")
+public final class InferenceEvent extends Event {
+
+    @Label("Model")
+    @Description("Path of the model file (or its thesis, if there is no file)")
+    private String model;
+
+    @Label("Hypotheses")
+    private int hypotheses;
+
+    @Label("Facts")
+    private int facts;
+
+    @Label("Present Facts")
+    private int presentFacts;
+
+    @Label("Absent Facts")
+    private int absentFacts;
+
+    @Label("Cached")
+    @Description("The posteriors were taken from the posterior cache")
+    private boolean cached;
+
+    /**
+     * Fills the fields (called only when {@code shouldCommit()} is true, right before {@code commit()}).
+     */
+    public void set(String model, int hypotheses, int facts, int presentFacts, int absentFacts, boolean cached) {
+        this.model = model;
+        this.hypotheses = hypotheses;
+        this.facts = facts;
+        this.presentFacts = presentFacts;
+        this.absentFacts = absentFacts;
+        this.cached = cached;
+    }
+}
@@ -0,0 +1,53 @@
+package pets.bayesianlogic.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of one pass of {@code processingKeyword} over the file: the discrete readers
+ * ({@code readThesis()}, {@code readHypotheses()}, {@code readFacts()}, {@code readProbabilities()})
+ * scan the whole file once per keyword, so here every such scan is seen separately.
+ * @author Kolesnikov Stephan
+ */
+@Name("pets.bayesianlogic.KeywordPass")
+@Label("Keyword Pass")
+@Category({"Bayesian Logic"})
+@Description("One pass of processingKeyword over the file for one keyword.")
+public final class KeywordPassEvent extends Event {
+
+    @Label("Model")
+    @Description("Path of the model file")
+    private String model;
+
+    @Label("Keyword")
+    private String keyword;
+
+    @Label("Hypotheses")
+    private int hypotheses;
+
+    @Label("Facts")
+    private int facts;
+
+    @Label("Lines")
+    @Description("Lines of the file passed by the pass")
+    private long lines;
+
+    @Label("Matched Lines")
+    @Description("Lines with the keyword of the pass")
+    private long matchedLines;
+
+    /**
+     * Fills the fields (called only when {@code shouldCommit()} is true, right before {@code commit()}).
+     */
+    public void set(String model, String keyword, int hypotheses, int facts, long lines, long matchedLines) {
+        this.model = model;
+        this.keyword = keyword;
+        this.hypotheses = hypotheses;
+        this.facts = facts;
+        this.lines = lines;
+        this.matchedLines = matchedLines;
+    }
+}
@@ -0,0 +1,117 @@
+package pets.bayesianlogic.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations with power-of-two buckets: the bucket {@code b > 0} counts the durations
+ * in {@code [2^(b-1); 2^b)} nanoseconds, the bucket 0 — zero durations. <br>
+ * Every bucket is a {@link LongAdder}, so the threads that record at the same moment do not contend
+ * for one cache line (the sums are taken only by {@link #snapshot()}). A percentile is known up to its bucket,
+ * that is, within a factor of two — enough to size hosts and to notice a regression.
+ * @author Kolesnikov Stephan
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Amount of buckets (every non-negative {@code long} has its bucket).
+     */
+    static final int BUCKETS = 64;
+
+    /**
+     * Counters of the buckets.
+     */
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    /**
+     * Sum of all recorded durations, in nanoseconds.
+     */
+    private final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * The longest recorded duration, in nanoseconds.
+     */
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int b = 0; b < BUCKETS; ++b) { this.buckets[b] = new LongAdder(); }
+    }
+
+    /**
+     * Records one duration (a negative one, possible with a non-monotonic clock, is taken as zero).
+     * @param nanos duration, in nanoseconds.
+     */
+    public void record(long nanos) {
+        long duration = Math.max(0, nanos);
+        this.buckets[bucketOf(duration)].increment();
+        this.totalNanos.add(duration);
+        this.maxNanos.accumulate(duration);
+    }
+
+    /**
+     * Records the time passed since the moment {@code System.nanoTime()} was {@code startNanos}.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Sums the counters. The snapshot is not atomic: the records made during it may be counted partly.
+     * @return current state of the histogram.
+     */
+    public LatencySnapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        int last = 0;
+        for (int b = 0; b < BUCKETS; ++b) {
+            counts[b] = this.buckets[b].sum();
+            count += counts[b];
+            if (counts[b] > 0) { last = b; }
+        }
+
+        long max = this.maxNanos.get();
+        return new LatencySnapshot(count,
+                count == 0 ? 0 : this.totalNanos.sum() / 1000.0 / count,
+                max / 1000.0,
+                percentile(counts, count, 0.50, max),
+                percentile(counts, count, 0.90, max),
+                percentile(counts, count, 0.99, max),
+                Arrays.copyOf(counts, last + 1));
+    }
+
+    /**
+     * Clears the histogram (the records made during it may survive).
+     */
+    public void reset() {
+        for (LongAdder bucket : this.buckets) { bucket.reset(); }
+        this.totalNanos.reset();
+        this.maxNanos.reset();
+    }
+
+    /**
+     * @return bucket of the duration: the amount of significant bits of it.
+     */
+    static int bucketOf(long nanos) {
+        return Long.SIZE - Long.numberOfLeadingZeros(nanos);
+    }
+
+    /**
+     * Upper bound of the bucket that holds the quantile (but not above the longest duration), in microseconds.
+     */
+    private static double percentile(long[] counts, long count, double quantile, long maxNanos) {
+        if (count == 0) { return 0; }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; ++b) {
+            seen += counts[b];
+            if (seen >= rank) {
+                // For the last bucket (1L << 63) - 1 is exactly Long.MAX_VALUE.
+                long upper = b == 0 ? 0 : (1L << b) - 1;
+                return Math.min(upper, maxNanos) / 1000.0;
+            }
+        }
+        return maxNanos / 1000.0;
+    }
+}
@@ -0,0 +1,79 @@
+package pets.bayesianlogic.metrics;
+
+import javax.management.ConstructorParameters;
+
+/**
+ * Immutable state of a {@link LatencyHistogram} (in JMX it is shown as a composite value). <br>
+ * The percentiles are the upper bounds of their power-of-two buckets, so they are exact within a factor of two.
+ * @author Kolesnikov Stephan
+ */
+public final class LatencySnapshot {
+
+    private final long count;
+    private final double meanMicros;
+    private final double maxMicros;
+    private final double p50Micros;
+    private final double p90Micros;
+    private final double p99Micros;
+    private final long[] buckets;
+
+    /**
+     * @param count amount of recorded durations.
+     * @param meanMicros mean duration, in microseconds.
+     * @param maxMicros the longest duration, in microseconds.
+     * @param p50Micros median, in microseconds.
+     * @param p90Micros 90th percentile, in microseconds.
+     * @param p99Micros 99th percentile, in microseconds.
+     * @param buckets counters of the buckets: the element {@code b > 0} counts
+     *                the durations in {@code [2^(b-1); 2^b)} nanoseconds (the empty tail is cut off).
+     */
+    @ConstructorParameters({"count", "meanMicros", "maxMicros", "p50Micros", "p90Micros", "p99Micros", "buckets"})
+    public LatencySnapshot(long count, double meanMicros, double maxMicros,
+                           double p50Micros, double p90Micros, double p99Micros, long[] buckets) {
+        this.count = count;
+        this.meanMicros = meanMicros;
+        this.maxMicros = maxMicros;
+        this.p50Micros = p50Micros;
+        this.p90Micros = p90Micros;
+        this.p99Micros = p99Micros;
+        this.buckets = buckets.clone();
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    public double getMeanMicros() {
+        return this.meanMicros;
+    }
+
+    public double getMaxMicros() {
+        return this.maxMicros;
+    }
+
+    public double getP50Micros() {
+        return this.p50Micros;
+    }
+
+    public double getP90Micros() {
+        return this.p90Micros;
+    }
+
+    public double getP99Micros() {
+        return this.p99Micros;
+    }
+
+    /**
+     * @return copy of the counters of the buckets.
+     */
+    public long[] getBuckets() {
+        return this.buckets.clone();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(java.util.Locale.ROOT, "count=%d, mean=%.1f us, p50<=%.1f us, p90<=%.1f us, "
+                + "p99<=%.1f us, max=%.1f us", this.count, this.meanMicros, this.p50Micros, this.p90Micros,
+                this.p99Micros, this.maxMicros);
+    }
+}
@@ -0,0 +1,49 @@
+package pets.bayesianlogic.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of a load of a model ({@code readAll*}, {@code readBinary}, {@code read*} of the parts). <br>
+ * It is begun before the reading and committed after a successful one, so a failed load leaves no event
+ * (its time is seen in the events of the keyword passes and in the stack samples).
+ * @author Kolesnikov Stephan
+ */
+@Name("pets.bayesianlogic.ModelLoad")
+@Label("Model Load")
+@Category({"Bayesian Logic"})
+@Description("Read of a model or of its part by a reader of BayesianBody.")
+public final class ModelLoadEvent extends Event {
+
+    @Label("Model")
+    @Description("Path of the model file (or its thesis, if there is no file)")
+    private String model;
+
+    @Label("Reader")
+    @Description("Method of BayesianBody that read the model")
+    private String reader;
+
+    @Label("Hypotheses")
+    private int hypotheses;
+
+    @Label("Facts")
+    private int facts;
+
+    @Label("Lines")
+    @Description("Lines of the file passed by the reader (0 for a binary model)")
+    private long lines;
+
+    /**
+     * Fills the fields (called only when {@code shouldCommit()} is true, right before {@code commit()}).
+     */
+    public void set(String model, String reader, int hypotheses, int facts, long lines) {
+        this.model = model;
+        this.reader = reader;
+        this.hypotheses = hypotheses;
+        this.facts = facts;
+        this.lines = lines;
+    }
+}
@@ -0,0 +1,42 @@
+package pets.bayesianlogic.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of the rendering of a result ({@code renderResult}, {@code getStringResult}).
+ * @author Kolesnikov Stephan
+ */
+@Name("pets.bayesianlogic.Render")
+@Label("Render")
+@Category({"Bayesian Logic"})
+@Description("Rendering of a result by a ResultRenderer.")
+public final class RenderEvent extends Event {
+
+    @Label("Model")
+    @Description("Path of the model file (or its thesis, if there is no file)")
+    private String model;
+
+    @Label("Renderer")
+    @Description("Class of the renderer")
+    private String renderer;
+
+    @Label("Hypotheses")
+    private int hypotheses;
+
+    @Label("Facts")
+    private int facts;
+
+    /**
+     * Fills the fields (called only when {@code shouldCommit()} is true, right before {@code commit()}).
+     */
+    public void set(String model, String renderer, int hypotheses, int facts) {
+        this.model = model;
+        this.renderer = renderer;
+        this.hypotheses = hypotheses;
+        this.facts = facts;
+    }
+}
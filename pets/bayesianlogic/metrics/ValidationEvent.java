@@ -0,0 +1,37 @@
+package pets.bayesianlogic.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of a successful {@code validateTable()} (the check that the table has no zero cells).
+ * @author Kolesnikov Stephan
+ */
+@Name("pets.bayesianlogic.Validation")
+@Label("Table Validation")
+@Category({"Bayesian Logic"})
+@Description("Check of the table of probabilities (validateTable).")
+public final class ValidationEvent extends Event {
+
+    @Label("Model")
+    @Description("Path of the model file (or its thesis, if there is no file)")
+    private String model;
+
+    @Label("Hypotheses")
+    private int hypotheses;
+
+    @Label("Facts")
+    private int facts;
+
+    /**
+     * Fills the fields (called only when {@code shouldCommit()} is true, right before {@code commit()}).
+     */
+    public void set(String model, int hypotheses, int facts) {
+        this.model = model;
+        this.hypotheses = hypotheses;
+        this.facts = facts;
+    }
+}
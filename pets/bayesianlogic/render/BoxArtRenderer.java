@@ -0,0 +1,62 @@
+package pets.bayesianlogic.render;
+
+import pets.bayesianlogic.stuff.InferenceResult;
+
+import java.io.IOException;
+
+/**
+ * Renderer of the box-art console output (exactly the same text as {@code BayesianBody.getStringResult}):
+ * walls of «▓» and «░», the thesis, the facts and the chances of hypotheses in whole percents.
+ * @author Kolesnikov Stephan
+ */
+final class BoxArtRenderer implements ResultRenderer {
+
+    static final BoxArtRenderer INSTANCE = new BoxArtRenderer();
+
+    /**
+     * Chunks for the walls and blanks.
+     */
+    private static final String DARK_WALL = "▓".repeat(64);
+    private static final String LIGHT_WALL = "░".repeat(64);
+    private static final String BLANKS = " ".repeat(64);
+
+    private BoxArtRenderer() {}
+
+    @Override
+    public void render(InferenceResult result, Appendable out) throws IOException {
+        String keyString = result.getLongestHypothesis() == null ? "" : result.getLongestHypothesis();
+        int wallLength = 30 + keyString.length();
+
+        // «wallID»: 1.
+        // Upper ceiling of symbols («▓») + main thesis
+        wall(out, DARK_WALL, wallLength);
+        out.append(">> \"").append(result.getThesis()).append("\"\n");
+
+        // «wallID»: 2.
+        // The second ceiling («▓»), separating the main thesis from the list of all the facts.
+        wall(out, DARK_WALL, wallLength);
+        out.append("Considering the facts:\n");
+        for (String fact : result.getFacts()) {
+            out.append("— \"").append(fact).append("\"\n");
+        }
+
+        // «wallID»: 3.
+        // Central ceiling printing another symbol («░») + hypotheses + calculations.
+        wall(out, LIGHT_WALL, wallLength);
+        for (int i = 0; i < result.size(); ++i) {
+            String hypo = result.getHypotheses().get(i);
+            out.append("• «").append(hypo).append("» ");
+            ResultRenderer.appendRepeated(out, BLANKS, keyString.length() - hypo.length());
+            out.append("will have a chance: ").append(Integer.toString(result.getPercent(i))).append("%\n");
+        }
+
+        // «wallID»: 4.
+        // Floor symbols («▓»)
+        wall(out, DARK_WALL, wallLength);
+    }
+
+    private static void wall(Appendable out, String chunk, int length) throws IOException {
+        ResultRenderer.appendRepeated(out, chunk, length);
+        out.append('\n');
+    }
+}
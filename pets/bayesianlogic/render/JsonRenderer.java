@@ -0,0 +1,79 @@
+package pets.bayesianlogic.render;
+
+import pets.bayesianlogic.stuff.InferenceResult;
+
+import java.io.IOException;
+
+/**
+ * Renderer of one JSON object per result:
+ * <pre>
+ * {"thesis":"...","facts":["..."],"evidence":"+-?"|null,
+ *  "hypotheses":[{"name":"...","posterior":0.63}]}
+ * </pre>
+ * Strings are escaped in a single pass, unchanged parts are appended at once.
+ * @author Kolesnikov Stephan
+ */
+final class JsonRenderer implements ResultRenderer {
+
+    static final JsonRenderer INSTANCE = new JsonRenderer();
+
+    private JsonRenderer() {}
+
+    @Override
+    public void render(InferenceResult result, Appendable out) throws IOException {
+        out.append("{\"thesis\":");
+        appendString(out, result.getThesis());
+
+        out.append(",\"facts\":[");
+        for (int j = 0; j < result.getFacts().size(); ++j) {
+            if (j > 0) { out.append(','); }
+            appendString(out, result.getFacts().get(j));
+        }
+
+        out.append("],\"evidence\":");
+        appendString(out, result.getEvidence() == null ? null : result.getEvidence().toString());
+
+        out.append(",\"hypotheses\":[");
+        for (int i = 0; i < result.size(); ++i) {
+            if (i > 0) { out.append(','); }
+            out.append("{\"name\":");
+            appendString(out, result.getHypotheses().get(i));
+            out.append(",\"posterior\":").append(Double.toString(result.getPosterior(i))).append('}');
+        }
+        out.append("]}");
+    }
+
+    /**
+     * Appends a JSON string literal ({@code "}, {@code \} and control symbols are escaped).
+     * @param out target of the text.
+     * @param value string (<code>null</code> is written as JSON {@code null}).
+     */
+    static void appendString(Appendable out, String value) throws IOException {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+
+        out.append('"');
+        int copiedUpTo = 0;
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            if (c != '"' && c != '\\' && c >= 0x20) { continue; }
+
+            out.append(value, copiedUpTo, i);
+            copiedUpTo = i + 1;
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                case '\b' -> out.append("\\b");
+                case '\f' -> out.append("\\f");
+                default -> out.append("\\u00")
+                        .append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+            }
+        }
+        out.append(value, copiedUpTo, value.length()).append('"');
+    }
+}
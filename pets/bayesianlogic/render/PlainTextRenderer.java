@@ -0,0 +1,26 @@
+package pets.bayesianlogic.render;
+
+import pets.bayesianlogic.stuff.InferenceResult;
+
+import java.io.IOException;
+
+/**
+ * Renderer of plain text for scripts: the thesis in the first line,
+ * then one line "hypothesis TAB posterior" per hypothesis (exact posterior, not percents).
+ * @author Kolesnikov Stephan
+ */
+final class PlainTextRenderer implements ResultRenderer {
+
+    static final PlainTextRenderer INSTANCE = new PlainTextRenderer();
+
+    private PlainTextRenderer() {}
+
+    @Override
+    public void render(InferenceResult result, Appendable out) throws IOException {
+        out.append(result.getThesis()).append('\n');
+        for (int i = 0; i < result.size(); ++i) {
+            out.append(result.getHypotheses().get(i)).append('\t')
+                    .append(Double.toString(result.getPosterior(i))).append('\n');
+        }
+    }
+}
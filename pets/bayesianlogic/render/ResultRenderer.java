@@ -0,0 +1,83 @@
+package pets.bayesianlogic.render;
+
+import pets.bayesianlogic.except.CrashException;
+import pets.bayesianlogic.stuff.InferenceResult;
+
+import java.io.IOException;
+
+/**
+ * Renderer of an inference result. <br>
+ * The renderer writes straight into the given {@code Appendable} ({@code Writer}, {@code PrintStream},
+ * {@code StringBuilder}...): no intermediate string of the whole output is built,
+ * so many results may be streamed one after another. The renderers have no state and are thread-safe.
+ * @author Kolesnikov Stephan
+ */
+public interface ResultRenderer {
+
+    /**
+     * Writes the result.
+     * @param result computed result.
+     * @param out target of the text.
+     * @throws IOException writing failure of the target.
+     */
+    void render(InferenceResult result, Appendable out) throws IOException;
+
+    /**
+     * Renders the result into a new string (for small outputs and old API).
+     * @param result computed result.
+     * @return rendered text.
+     */
+    default String renderToString(InferenceResult result) {
+        StringBuilder sb = new StringBuilder(256);
+        try {
+            render(result, sb);
+        } catch (IOException e) {
+            // StringBuilder never throws it.
+            throw new CrashException("Rendering into a string failed: " + e.getMessage());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the box-art renderer of the console output.
+     */
+    static ResultRenderer boxArt() {
+        return BoxArtRenderer.INSTANCE;
+    }
+
+    /**
+     * @return the renderer of plain lines "hypothesis TAB posterior".
+     */
+    static ResultRenderer plainText() {
+        return PlainTextRenderer.INSTANCE;
+    }
+
+    /**
+     * @return the JSON renderer (one object per result).
+     */
+    static ResultRenderer json() {
+        return JsonRenderer.INSTANCE;
+    }
+
+    /**
+     * Appends a JSON string literal with the same escaping as the JSON renderer
+     * (for the JSON written around the results, for example by the server).
+     * @param out target of the text.
+     * @param value string (<code>null</code> is written as JSON {@code null}).
+     */
+    static void appendJsonString(Appendable out, String value) throws IOException {
+        JsonRenderer.appendString(out, value);
+    }
+
+    /**
+     * Appends a symbol several times by chunks of a prepared string (no per-symbol calls, no new strings).
+     * @param out target of the text.
+     * @param repeated string of the same symbol.
+     * @param count number of times.
+     */
+    static void appendRepeated(Appendable out, String repeated, int count) throws IOException {
+        for (int left = count; left > 0; left -= repeated.length()) {
+            out.append(repeated, 0, Math.min(left, repeated.length()));
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package pets.bayesianlogic.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import pets.bayesianlogic.except.BayesianLogicalException;
+import pets.bayesianlogic.except.CrashException;
+import pets.bayesianlogic.except.IncorrectFileValuesException;
+import pets.bayesianlogic.logger.LoggerForBayesian;
+import pets.bayesianlogic.render.ResultRenderer;
+import pets.bayesianlogic.stuff.CompiledBayesianModel;
+import pets.bayesianlogic.stuff.Evidence;
+import pets.bayesianlogic.stuff.ModelCache;
+import pets.bayesianlogic.stuff.RankedHypothesis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Small local HTTP server of inference on the JDK's {@code com.sun.net.httpserver.HttpServer}:
+ * every request is handled on its own virtual thread, the models are compiled once and shared
+ * through a {@link ModelCache}, so other processes call one copy of the models over localhost
+ * instead of embedding their own. <br>
+ * Endpoints (all answers are JSON, the model is a path relative to the root directory of models):
+ * <pre>
+ *  POST /models/load?model=NAME                       — loads (or takes from the cache) the model, gives its labels
+ *  GET|POST /infer?model=NAME[&amp;evidence=+-?][&amp;top=K] — posteriors (as the JSON renderer), or the K best
+ *  POST /infer/batch?model=NAME                       — body: one evidence line per case, gives the matrix
+ * </pre>
+ * The evidence is the string form of {@link Evidence} ({@code +} present, {@code -} absent, {@code ?} unknown),
+ * in the query or in the body of the request; without evidence every fact is present.
+ * In the query the symbol {@code +} is taken literally (it is NOT a space here).
+ * Errors are answered as {@code {"error":"..."}} with the status 400 (bad request), 403 (path outside the root),
+ * 404 (no such model or endpoint), 405 (method), 422 (broken model) or 500.
+ * @author Kolesnikov Stephan
+ */
+public final class BayesianServer implements AutoCloseable {
+
+    /**
+     * Port of the {@code main(String...)} by default.
+     */
+    public static final int DEFAULT_PORT = 8750;
+
+    /**
+     * The largest accepted body of a request (a batch of evidence lines).
+     */
+    private static final int MAX_BODY_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * The largest initial capacity of a JSON answer (the builder grows further if needed).
+     */
+    private static final int MAX_CAPACITY_HINT = 1024 * 1024;
+
+    /**
+     * Logger of the server (the same JSON file as the rest of the project).
+     */
+    private final Logger toLog = LoggerForBayesian.init(BayesianServer.class, false);
+
+    /**
+     * Root directory of the models (absolute, normalized).
+     */
+    private final Path modelRoot;
+
+    /**
+     * Cache of the compiled models.
+     */
+    private final ModelCache cache;
+
+    /**
+     * HTTP server of the JDK.
+     */
+    private final HttpServer server;
+
+    /**
+     * Executor of the requests: a new virtual thread per request.
+     */
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Failure of a request with its HTTP status.
+     */
+    private static final class RequestFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        private RequestFailure(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * Handler of one endpoint (its exceptions are turned into JSON errors).
+     */
+    @FunctionalInterface
+    private interface Endpoint {
+        String handle(HttpExchange exchange, Map<String, String> query) throws IOException;
+    }
+
+    /**
+     * The constructor binds the server (it does not accept requests before {@code start()}).
+     * @param address address to listen on (for the local use — a loopback one).
+     * @param modelRoot directory the names of models are resolved against.
+     * @param cache cache of the compiled models (for example, {@code ModelCache.shared()}).
+     * @throws IOException the address cannot be bound.
+     */
+    public BayesianServer(InetSocketAddress address, Path modelRoot, ModelCache cache) throws IOException {
+        this.modelRoot = modelRoot.toAbsolutePath().normalize();
+        this.cache = cache;
+        this.server = HttpServer.create(address, 0);
+        this.server.setExecutor(this.executor);
+
+        endpoint("/models/load", Set.of("POST"), this::load);
+        endpoint("/infer", Set.of("GET", "POST"), this::infer);
+        endpoint("/infer/batch", Set.of("POST"), this::inferBatch);
+        endpoint("/", Set.of(), (exchange, query) -> {
+            throw new RequestFailure(404, "Unknown endpoint: " + exchange.getRequestURI().getPath());
+        });
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        this.server.start();
+        toLog.info("Bayesian server listens on " + getAddress() + ", models from " + this.modelRoot);
+    }
+
+    /**
+     * Getter of the bound address (with the real port, if 0 was asked).
+     */
+    public InetSocketAddress getAddress() {
+        return this.server.getAddress();
+    }
+
+    /**
+     * Stops the server: the requests in progress are given a second to finish.
+     */
+    @Override
+    public void close() {
+        this.server.stop(1);
+        this.executor.close();
+        toLog.info("Bayesian server was stopped.");
+    }
+
+    /**
+     * Server mode from the command line: {@code [port] [root of models]} (by default {@value #DEFAULT_PORT}
+     * and the current directory). The server listens on the loopback address only.
+     * @throws IOException the port cannot be bound.
+     */
+    public static void main(String... args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        Path root = Paths.get(args.length > 1 ? args[1] : ".");
+
+        BayesianServer server = new BayesianServer(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port), root, ModelCache.shared());
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "bayesian-server-stop"));
+        server.start();
+        System.out.println("> Bayesian server: http://" + server.getAddress().getHostString() + ":"
+                + server.getAddress().getPort() + "/ (models from " + server.modelRoot + ")");
+    }
+
+//  ============================================================================================================
+//  🔸— «ENDPOINTS»
+//  ============================================================================================================
+
+    /**
+     * {@code POST /models/load?model=NAME}: the labels of the model.
+     */
+    private String load(HttpExchange exchange, Map<String, String> query) throws IOException {
+        String name = required(query, "model");
+        CompiledBayesianModel model = model(name);
+
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"model\":");
+        ResultRenderer.appendJsonString(json, name);
+        json.append(",\"thesis\":");
+        ResultRenderer.appendJsonString(json, model.getThesis());
+        json.append(",\"hypotheses\":");
+        appendStrings(json, model.getHypotheses());
+        json.append(",\"facts\":");
+        appendStrings(json, model.getFacts());
+        return json.append('}').toString();
+    }
+
+    /**
+     * {@code /infer?model=NAME[&evidence=...][&top=K]}: the posteriors of one evidence.
+     */
+    private String infer(HttpExchange exchange, Map<String, String> query) throws IOException {
+        CompiledBayesianModel model = model(required(query, "model"));
+
+        String line = query.get("evidence");
+        if (line == null) { line = readBody(exchange).trim(); }
+        Evidence evidence = line.isEmpty() ? Evidence.allPresent(model.getFactsCount()) : parseEvidence(line);
+
+        String top = query.get("top");
+        if (top == null) {
+            return ResultRenderer.json().renderToString(model.infer(evidence));
+        }
+
+        int k;
+        try {
+            k = Integer.parseInt(top);
+        } catch (NumberFormatException e) {
+            throw new RequestFailure(400, "Parameter `top` must be an integer: " + top);
+        }
+        StringBuilder json = new StringBuilder(64 + 48 * Math.max(0, Math.min(k, model.getHyposCount())));
+        json.append("{\"evidence\":");
+        ResultRenderer.appendJsonString(json, evidence.toString());
+        json.append(",\"top\":[");
+        List<RankedHypothesis> ranked = model.topK(k, evidence);
+        for (int r = 0; r < ranked.size(); ++r) {
+            if (r > 0) { json.append(','); }
+            json.append("{\"index\":").append(ranked.get(r).index()).append(",\"name\":");
+            ResultRenderer.appendJsonString(json, model.getHypotheses().get(ranked.get(r).index()));
+            json.append(",\"posterior\":").append(ranked.get(r).posterior()).append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * {@code POST /infer/batch?model=NAME}: the posterior matrix of the evidence lines of the body.
+     */
+    private String inferBatch(HttpExchange exchange, Map<String, String> query) throws IOException {
+        CompiledBayesianModel model = model(required(query, "model"));
+
+        List<Evidence> batch = new ArrayList<>();
+        for (String line : readBody(exchange).split("\n")) {
+            line = line.trim();
+            if (!line.isEmpty()) { batch.add(parseEvidence(line)); }
+        }
+        double[][] matrix = model.posteriorBatch(batch);
+
+        // The hint is computed in long: a big batch would overflow an int.
+        StringBuilder json = new StringBuilder((int) Math.min(MAX_CAPACITY_HINT,
+                64L + 24L * batch.size() * model.getHyposCount()));
+        json.append("{\"hypotheses\":");
+        appendStrings(json, model.getHypotheses());
+        json.append(",\"posteriors\":[");
+        for (int c = 0; c < matrix.length; ++c) {
+            json.append(c > 0 ? ",[" : "[");
+            for (int i = 0; i < matrix[c].length; ++i) {
+                if (i > 0) { json.append(','); }
+                json.append(matrix[c][i]);
+            }
+            json.append(']');
+        }
+        return json.append("]}").toString();
+    }
+
+//  ============================================================================================================
+//  🔸— «INDUSTRIAL METHODS»
+//  ============================================================================================================
+
+    /**
+     * Registers an endpoint: checks the method, parses the query, answers with the JSON or the error.
+     */
+    private void endpoint(String path, Set<String> methods, Endpoint endpoint) {
+        this.server.createContext(path, exchange -> {
+            int status;
+            String json;
+            try {
+                // HttpServer matches the contexts by prefix: «/inferfoo» would be served by «/infer».
+                if (!path.equals(exchange.getRequestURI().getPath())) {
+                    throw new RequestFailure(404, "Unknown endpoint: " + exchange.getRequestURI().getPath());
+                }
+                if (!methods.isEmpty() && !methods.contains(exchange.getRequestMethod())) {
+                    throw new RequestFailure(405, "Method " + exchange.getRequestMethod() + " is not allowed, use "
+                            + String.join(" or ", methods) + ".");
+                }
+                json = endpoint.handle(exchange, parseQuery(exchange.getRequestURI().getRawQuery()));
+                status = 200;
+            } catch (RequestFailure e) {
+                status = e.status;
+                json = error(e.getMessage());
+            } catch (CrashException e) {
+                status = 400;
+                json = error(e.getMessage());
+            } catch (Exception e) {
+                toLog.log(Level.SEVERE, "Request " + exchange.getRequestURI() + " failed.", e);
+                // The details stay in the log: the client is not told about the internals.
+                status = 500;
+                json = error("Internal server error.");
+            }
+
+            if (toLog.isLoggable(Level.FINE)) {
+                toLog.fine(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + " -> " + status);
+            }
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+    }
+
+    /**
+     * Compiled model by its name: resolved against the root and taken from the cache.
+     * @throws RequestFailure path outside the root (403), no such file (404), broken model (422).
+     */
+    private CompiledBayesianModel model(String name) throws IOException {
+        Path path = this.modelRoot.resolve(name).normalize();
+        if (!path.startsWith(this.modelRoot)) {
+            throw new RequestFailure(403, "The model must be inside the root of models: " + name);
+        }
+
+        try {
+            return this.cache.get(path);
+        } catch (NoSuchFileException e) {
+            throw new RequestFailure(404, "No such model: " + name);
+        } catch (IncorrectFileValuesException | BayesianLogicalException | CrashException e) {
+            throw new RequestFailure(422, "The model " + name + " cannot be loaded: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @throws RequestFailure the evidence has unknown symbols (400).
+     */
+    private static Evidence parseEvidence(String line) {
+        try {
+            return Evidence.parse(line);
+        } catch (CrashException e) {
+            throw new RequestFailure(400, e.getMessage());
+        }
+    }
+
+    /**
+     * Parameters of the query ({@code +} is kept as it is, because it is the symbol of a present fact).
+     */
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) { return query; }
+
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            query.put(decode(key), decode(value));
+        }
+        return query;
+    }
+
+    private static String decode(String part) {
+        try {
+            return URLDecoder.decode(part.replace("+", "%2B"), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new RequestFailure(400, "Broken query: " + part);
+        }
+    }
+
+    private static String required(Map<String, String> query, String key) {
+        String value = query.get(key);
+        if (value == null || value.isBlank()) {
+            throw new RequestFailure(400, "Parameter `" + key + "` is missing.");
+        }
+        return value;
+    }
+
+    /**
+     * Body of the request as UTF-8 text.
+     * @throws RequestFailure the body is larger than {@value #MAX_BODY_BYTES} bytes (400).
+     */
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new RequestFailure(400, "The body is larger than " + MAX_BODY_BYTES + " bytes.");
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void appendStrings(StringBuilder json, List<String> values) throws IOException {
+        json.append('[');
+        for (int i = 0; i < values.size(); ++i) {
+            if (i > 0) { json.append(','); }
+            ResultRenderer.appendJsonString(json, values.get(i));
+        }
+        json.append(']');
+    }
+
+    private static String error(String message) {
+        StringBuilder json = new StringBuilder(32 + (message == null ? 4 : message.length()));
+        try {
+            json.append("{\"error\":");
+            ResultRenderer.appendJsonString(json, message);
+        } catch (IOException e) {
+            // StringBuilder does not throw.
+        }
+        return json.append('}').toString();
+    }
+}
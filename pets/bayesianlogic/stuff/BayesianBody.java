@@ -2,11 +2,15 @@ package pets.bayesianlogic.stuff;
 
 import pets.bayesianlogic.except.*;
 import pets.bayesianlogic.logger.LoggerForBayesian;
+import pets.bayesianlogic.metrics.*;
+import pets.bayesianlogic.render.ResultRenderer;
 
 import java.awt.geom.IllegalPathStateException;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.*;
 
 /**
@@ -37,6 +41,12 @@ public class BayesianBody {
      */
     private static Logger toLog = null;
 
+    /**
+     * Static-final field with the process-wide metrics: loads, parsed lines, validation, inference, rendering
+     * and the posterior cache are recorded there (read them by JMX or by {@code getMetrics()}).
+     */
+    private static final BayesianMetrics METRICS = BayesianMetrics.shared();
+
     /**
      * An industry record to be used EXCLUSIVELY for the method {@code getLoggingProperties()}.
      * @see #getLoggingProperties()
@@ -66,6 +76,15 @@ public class BayesianBody {
         return atrs;
     }
 
+    /**
+     * A static method for obtaining the runtime metrics of all bodies of the process
+     * (the same object is registered in the platform MBean server, see {@link BayesianMetrics}).
+     * @return process-wide metrics.
+     */
+    public static BayesianMetrics getMetrics() {
+        return METRICS;
+    }
+
 //  ============================================================================================================
 //  🔸— «Constructor and fields for loading file»
 //  ============================================================================================================
@@ -248,6 +267,7 @@ public class BayesianBody {
 
                         // Add cleaned double.
                         hyposChances.add(cleanDouble);
+                        invalidateInference();
                         checker100Percent += cleanDouble;
                         isValidDouble = true;
                         toLog.info("The probability has been established.");
@@ -311,9 +331,22 @@ public class BayesianBody {
     private final ArrayList<String> facts = new ArrayList<>();
 
     /**
-     * A field describing a probability table for the relationship [hypothesis][fact].
+     * A field describing a probability table for the relationship [hypothesis][fact]:
+     * one flat row-major array together with primitive chances (see {@link ProbabilityModel}),
+     * or only the explicit cells plus defaults, if the file declares {@code prob_default}
+     * (see {@link SparseProbabilityModel}).
      */
-    private double[][] tableOfProbabilities = null;
+    private ProbabilityTable tableOfProbabilities = null;
+
+    /**
+     * Global default of the cells not given by «prob» (keyword {@code prob_default;<p>}, 0 — not declared).
+     */
+    private double defaultProbability = 0;
+
+    /**
+     * Own defaults of hypotheses (keyword {@code prob_default;<hypo>;<p>}): zero-based index -> probability.
+     */
+    private final TreeMap<Integer, Double> hypoDefaults = new TreeMap<>();
 
     /**
      * A public method for defining and recording facts in a system.
@@ -379,7 +412,9 @@ public class BayesianBody {
             throw e;
         }
 
-        this.tableOfProbabilities = new double[this.hypotheses.size()][this.facts.size()];
+        this.tableOfProbabilities = new ProbabilityModel(this.hypotheses.size(), this.facts.size());
+
+        invalidateInference();
         toLog.info("Cheking was successful, probability table was created.");
 
         for (int i = 0; i < this.hypotheses.size(); ++i) {  // Passing through hypotheses (lines).
@@ -419,7 +454,8 @@ public class BayesianBody {
                 }
 
                 // Only after all the checks we put it into the probability table.
-                this.tableOfProbabilities[i][j] = localProbability;
+                this.tableOfProbabilities.set(i, j, localProbability);
+                invalidateInference();
                 toLog.info("Position [" + i + "][" + j + "] was filled with " + localProbability);
             }
         }
@@ -446,14 +482,7 @@ public class BayesianBody {
     public double[][] getDeepClonedProbabilityTable() {
         if (this.tableOfProbabilities == null) { return null; }
 
-        double[][] copiedTable = new double[this.tableOfProbabilities.length][];
-        for (int i = 0; i < this.tableOfProbabilities.length; ++i) {
-            if (this.tableOfProbabilities[i] != null) {
-                copiedTable[i] = this.tableOfProbabilities[i].clone();
-            }
-        }
-
-        return copiedTable;
+        return this.tableOfProbabilities.toNestedArray();
     }
 
 //  ============================================================================================================
@@ -471,10 +500,15 @@ public class BayesianBody {
      * @link setDirectory() — check the directory, because without changing it you may not be able to read the data!
      */
     public void readThesis() throws IncorrectFileValuesException {
-        processingKeyword(this.fileDataPath.toString(), "main_thesis", false);
+        long started = METRICS.loadStarted();
+        ModelLoadEvent loadEvent = new ModelLoadEvent();
+        loadEvent.begin();
+        long lines = processingKeyword(this.fileDataPath.toString(), "main_thesis", false);
         if (this.mainExpression == null) {
             System.err.println("[ThesisIsMissing] File was read, but it's hasn't main thesis!");
         }
+        METRICS.loadCompleted(started);
+        commitLoad(loadEvent, "readThesis", lines);
     }
 
 
@@ -501,6 +535,9 @@ public class BayesianBody {
      */
     public void readHypotheses()
             throws IncorrectFileValuesException, BayesianLogicalException {
+        long started = METRICS.loadStarted();
+        ModelLoadEvent loadEvent = new ModelLoadEvent();
+        loadEvent.begin();
         if (this.fileDataPath == null) {
             IllegalPathStateException e
                     = new IllegalPathStateException("File-data path is missing.");
@@ -508,7 +545,7 @@ public class BayesianBody {
             throw e;
         }
 
-        processingKeyword(this.fileDataPath.toString(), "hypos_count", false);
+        long lines = processingKeyword(this.fileDataPath.toString(), "hypos_count", false);
 
 //       if (this.hyposCount <= 0) {
 //           IncorrectFileValuesException e
@@ -526,7 +563,7 @@ public class BayesianBody {
             this.hyposCount = 0; // you never know!
         }
 
-        processingKeyword(this.fileDataPath.toString(), "hypo", false);
+        lines += processingKeyword(this.fileDataPath.toString(), "hypo", false);
 
         if (this.hypotheses.isEmpty()) {
             IncorrectFileValuesException e
@@ -537,8 +574,22 @@ public class BayesianBody {
         }
 
         this.hyposCount = this.hypotheses.size();
-        processingKeyword(this.fileDataPath.toString(), "hypo_chance", false);
+        lines += processingKeyword(this.fileDataPath.toString(), "hypo_chance", false);
+
+        checkReadHypotheses();
+        METRICS.loadCompleted(started);
+        commitLoad(loadEvent, "readHypotheses", lines);
+    }
 
+
+    /**
+     * Helper method with the checks that follow the reading of hypotheses and their chances
+     * (shared by {@code readHypotheses()} and {@code readAllStreaming(Path)}).
+     * @throws IncorrectFileValuesException missing chances or a mismatch of amounts.
+     * @throws BayesianLogicalException chances do not add up to 1.0.
+     */
+    private void checkReadHypotheses()
+            throws IncorrectFileValuesException, BayesianLogicalException {
         if (this.hyposChances.isEmpty()) {
             IncorrectFileValuesException e
                     = new IncorrectFileValuesException("Hypos chances in fact is missing. " +
@@ -594,13 +645,16 @@ public class BayesianBody {
      * @link setDirectory() — check the directory, because without changing it you may not be able to read the data!
      */
     public void readFacts() throws BayesianLogicalException {
+        long started = METRICS.loadStarted();
+        ModelLoadEvent loadEvent = new ModelLoadEvent();
+        loadEvent.begin();
         if (this.fileDataPath == null) {
             IllegalPathStateException e
                     = new IllegalPathStateException("Filedata path is missing.");
             toLog.severe(e.getMessage());
             throw e;
         }
-        processingKeyword(this.fileDataPath.toString(), "facts_count", false);
+        long lines = processingKeyword(this.fileDataPath.toString(), "facts_count", false);
 
         if (this.factsCount <= 0) {
             toLog.warning("The keyword `hypos_count` was not found in the file, " +
@@ -610,7 +664,19 @@ public class BayesianBody {
             this.factsCount = 0; // you never know!
         }
 
-        processingKeyword(this.fileDataPath.toString(), "fact", false);
+        lines += processingKeyword(this.fileDataPath.toString(), "fact", false);
+        checkReadFacts();
+        METRICS.loadCompleted(started);
+        commitLoad(loadEvent, "readFacts", lines);
+    }
+
+
+    /**
+     * Helper method with the checks that follow the reading of facts
+     * (shared by {@code readFacts()} and {@code readAllStreaming(Path)}).
+     * @throws BayesianLogicalException lack of facts as a logical fallacy.
+     */
+    private void checkReadFacts() throws BayesianLogicalException {
         if (this.facts.isEmpty()) {
             BayesianLogicalException e
                     = new BayesianLogicalException("Facts list is missing. Recheck your file.");
@@ -640,6 +706,9 @@ public class BayesianBody {
      * @link setDirectory() — check the directory, because without changing it you may not be able to read the data!
      */
     public void readProbabilities() throws BayesianLogicalException {
+        long started = METRICS.loadStarted();
+        ModelLoadEvent loadEvent = new ModelLoadEvent();
+        loadEvent.begin();
         if (this.facts.isEmpty()) {
             BayesianLogicalException e
                     = new BayesianLogicalException("No listed facts found, " +
@@ -655,10 +724,74 @@ public class BayesianBody {
             throw e;
         }
 
+        // Defaults go first: they decide the kind of the table.
+        clearDefaults();
+        long lines = processingKeyword(this.fileDataPath.toString(), "prob_default", false);
+
         // hyposCount & factsCount MUST BE NON-NULL!
-        this.tableOfProbabilities = new double[this.hyposCount][this.factsCount];
+        try {
+            this.tableOfProbabilities = newTable();
+        } catch (IncorrectFileValuesException e) {
+            // The default does not match the read hypotheses (already logged).
+            throw new BayesianLogicalException(e.getMessage());
+        }
+        invalidateInference();
+
+        lines += processingKeyword(this.fileDataPath.toString(), "prob", true);
+        METRICS.loadCompleted(started);
+        commitLoad(loadEvent, "readProbabilities", lines);
+    }
+
+
+    /**
+     * API-open method that reads a file with probabilities by the keyword «prob» like {@code readProbabilities()},
+     * but for huge tables: the file is memory-mapped and the lines are parsed straight from the bytes
+     * (see {@link MappedProbabilityParser}), without a string per line and a string per value.<br>
+     * The format of lines is the same as for {@code readProbabilities()}, but the problem line is NOT skipped:
+     * its exception (the same as in {@code readAll(Path)}) is thrown out of the method.
+     *
+     * @throws BayesianLogicalException missing of hypotheses or facts.
+     * @throws IncorrectFileValuesException error values in the file (also: the file cannot be read).
+     * @link setDirectory() — check the directory, because without changing it you may not be able to read the data!
+     */
+    public void readProbabilitiesMapped()
+            throws BayesianLogicalException, IncorrectFileValuesException {
+        long started = METRICS.loadStarted();
+        ModelLoadEvent loadEvent = new ModelLoadEvent();
+        loadEvent.begin();
+        if (this.facts.isEmpty() || this.hypotheses.isEmpty()) {
+            BayesianLogicalException e
+                    = new BayesianLogicalException("No listed facts or hypotheses found, " +
+                    "please double check data (maybe follow the `readFacts()` and `readHypotheses()`).");
+            toLog.severe(e.getMessage());
+            throw e;
+        }
+
+        // Defaults can be only in the header part (before the first «prob»), so only that part is read.
+        clearDefaults();
+        try (java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(this.fileDataPath)) {
+            long sectionStart = ParallelProbabilityParser.findSectionStart(channel, this, toLog);
+            for (String line : sectionStart < 0 ? new String[0] : readHeaderLines(channel, sectionStart)) {
+                if (line.toLowerCase(Locale.ROOT).startsWith("prob_default")) { parsingTwoSeparatedParts(line); }
+            }
+        } catch (IncorrectFileValuesException e) {
+            throw e;
+        } catch (java.io.IOException e) {
+            IncorrectFileValuesException ex
+                    = new IncorrectFileValuesException("Reading file failure: " + e.getMessage());
+            toLog.log(Level.SEVERE, "File data failure.", e);
+            throw ex;
+        }
 
-        processingKeyword(this.fileDataPath.toString(), "prob", true);
+        this.tableOfProbabilities = newTable();
+
+        invalidateInference();
+
+        long lines = new MappedProbabilityParser(this, toLog).parse(this.fileDataPath);
+        METRICS.linesParsed(lines);
+        validateTable();
+        METRICS.loadCompleted(started);
+        commitLoad(loadEvent, "readProbabilitiesMapped", lines);
     }
 
 
@@ -675,6 +808,9 @@ public class BayesianBody {
      */
     public void readAll(Path pathToTheFile)
             throws FileNotFoundException, IncorrectFileValuesException {
+        long started = METRICS.loadStarted();
+        ModelLoadEvent loadEvent = new ModelLoadEvent();
+        loadEvent.begin();
         if (pathToTheFile == null) {
             if (this.fileDataPath == null) {
                 IncorrectFileValuesException e
@@ -689,6 +825,7 @@ public class BayesianBody {
         }
 
         // Using try-with-resources the file will be opened.
+        long linesCount = 0;
         try (java.util.Scanner inputText =
                      new java.util.Scanner(new java.io.File(this.fileDataPath.toString()))) {
             boolean separate2Parts = true;
@@ -699,6 +836,7 @@ public class BayesianBody {
 
             while (inputText.hasNextLine() && separate2Parts) {
                 String line = inputText.nextLine();
+                linesCount++;
 
                 if (line.isBlank() || (!line.startsWith("main_thesis") && !line.startsWith("prob")
                         && !line.startsWith("hypos_count") && !line.startsWith("hypo")
@@ -707,8 +845,8 @@ public class BayesianBody {
                     continue;
                 }
 
-                // Remember the line with the keyword «prob».
-                if (line.trim().startsWith("prob")) {
+                // Remember the line with the keyword «prob» (but not «prob_default», it is a header line).
+                if (line.trim().startsWith("prob") && !line.trim().startsWith("prob_default")) {
                     toLog.info("First line with keyword caught.");
                     separate2Parts = false;
 
@@ -747,7 +885,7 @@ public class BayesianBody {
                         // Search by File keyword «hypos_count»
                         case "hypos_count"  -> {
                             toLog.info("A line containing `hypos_count` was read.");
-                            if (!parts[1].matches("\\d+")){
+                            if (!isDigitsOnly(parts[1])){
                                 IncorrectFileValuesException e =
                                         new IncorrectFileValuesException("Non-Integer entered.");
                                 toLog.log(Level.SEVERE, "Non-Integer.", e);
@@ -774,20 +912,21 @@ public class BayesianBody {
                         // Search by File keyword «hypo_chance»
                         case "hypo_chance"  -> {
                             toLog.info("A line containing `hypo_chance` was read.");
-                            if (!parts[1].matches("-?\\d+(\\.\\d+)?")) {
+                            if (!isPlainDecimal(parts[1], true)) {
                                 IncorrectFileValuesException e =
                                         new IncorrectFileValuesException("Non-Double entered.");
                                 toLog.log(Level.SEVERE, "Non-Double", e);
                                 throw e;
                             }
                             this.hyposChances.add(Double.parseDouble(parts[1].trim()));
+                            invalidateInference();
                             toLog.info("The chance of a new hypothesis was recorded in the list.");
                         }
 
                         // Search by File keyword «facts_count»
                         case "facts_count"  -> {
                             toLog.info("A line containing `facts_count` was read.");
-                            if (!parts[1].matches("\\d+")){
+                            if (!isDigitsOnly(parts[1])){
                                 IncorrectFileValuesException e =
                                         new IncorrectFileValuesException("Non-Integer entered.");
                                 toLog.log(Level.SEVERE, "Non-Integer", e);
@@ -803,6 +942,12 @@ public class BayesianBody {
                             toLog.info("A new fact was recorded in the list.");
                             localFacts++;
                         }
+
+                        // Search by File keyword «prob_default»
+                        case "prob_default" -> {
+                            toLog.info("A line containing `prob_default` was read.");
+                            parsingTwoSeparatedParts(line);
+                        }
                     }
                 }
             }
@@ -826,7 +971,8 @@ public class BayesianBody {
             }
 
             // Initializing the table of probabilities.
-            this.tableOfProbabilities = new double[this.hyposCount][this.factsCount];
+            this.tableOfProbabilities = newTable();
+            invalidateInference();
             toLog.finer("The table was initialized.");
 
             if (bufferedLine != null) {
@@ -835,7 +981,10 @@ public class BayesianBody {
 
                 toLog.finer("Buffered line was processed.");
 
-                while (inputText.hasNextLine()) { parseProbabilityLine(inputText.nextLine().trim()); }
+                while (inputText.hasNextLine()) {
+                    parseProbabilityLine(inputText.nextLine().trim());
+                    linesCount++;
+                }
             }
             else {
                 System.err.println("— Sudden silence.");
@@ -846,6 +995,500 @@ public class BayesianBody {
                 throw e;
             }
         }
+        METRICS.linesParsed(linesCount);
+        METRICS.loadCompleted(started);
+        commitLoad(loadEvent, "readAll", linesCount);
+    }
+
+
+    /**
+     * An open-API method that loads ABSOLUTELY ALL data from a file in a single pass.<br>
+     * Unlike the discrete methods ({@code readThesis()}, {@code readHypotheses()}, {@code readFacts()},
+     * {@code readProbabilities()}), each of which rescans the whole file for its keyword,
+     * the file is opened once and every line is sent straight to its handler:
+     * {@code main_thesis}, {@code hypos_count}, {@code hypo}, {@code hypo_chance}, {@code facts_count}, {@code fact}
+     * go to {@code parsingTwoSeparatedParts(String)}, {@code prob} goes to {@code parseProbabilityLine(String)}.<br>
+     *
+     * <br>Important warning about organizing lines in the file (the same as for {@code readAll(Path)}):
+     * the first line with the keyword «prob» closes the header part of the file.
+     * At this moment the hypotheses and facts are checked and the table is created,
+     * so any header keyword after it is an error.</br>
+     *
+     * @param pathToTheFile the full path of the file where the downloaded data is stored.
+     *                      Also, you can use <code>null</code> to try to read a file
+     *                      from the current directory specified earlier.
+     * @throws FileNotFoundException if the file was not found.
+     * @throws IncorrectFileValuesException failure input.
+     * @throws BayesianLogicalException hypotheses chances do not add up to 1.0 or facts are missing.
+     */
+    public void readAllStreaming(Path pathToTheFile)
+            throws FileNotFoundException, BayesianLogicalException {
+        long started = METRICS.loadStarted();
+        ModelLoadEvent loadEvent = new ModelLoadEvent();
+        loadEvent.begin();
+        if (pathToTheFile == null) {
+            if (this.fileDataPath == null) {
+                IncorrectFileValuesException e
+                        = new IncorrectFileValuesException("Object body's path is null.");
+                toLog.warning(e.getMessage());
+                throw e;
+            }
+            toLog.info("The directory remains the same.");
+        } else {
+            this.fileDataPath = pathToTheFile;
+            toLog.info("Path to the data was changed to " + pathToTheFile);
+        }
+
+        // The body is filled from scratch, nothing is appended to the previous data.
+        this.mainExpression = null;
+        this.hypotheses.clear();
+        this.hyposChances.clear();
+        this.facts.clear();
+        this.hyposCount = 0;
+        this.factsCount = 0;
+        this.tableOfProbabilities = null;
+        clearDefaults();
+        invalidateInference();
+
+        int linesCount = 0;
+        try (java.io.BufferedReader in = new java.io.BufferedReader(new java.io.FileReader(
+                this.fileDataPath.toFile(), java.nio.charset.StandardCharsets.UTF_8))) {
+            toLog.fine("File was opened.");
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                linesCount++;
+                line = line.trim();
+                if (line.isEmpty()) { continue; }
+
+                int separator = line.indexOf(';');
+                String keyword = (separator < 0 ? line : line.substring(0, separator))
+                        .trim().toLowerCase(Locale.ROOT);
+
+                switch (keyword) {
+                    case "prob" -> {
+                        if (this.tableOfProbabilities == null) {
+                            // First line with «prob»: the header part is over.
+                            closeStreamingHeader();
+                        }
+                        parseProbabilityLine(line);
+                    }
+                    case "main_thesis", "hypos_count", "hypo", "hypo_chance", "facts_count", "fact", "prob_default" -> {
+                        if (this.tableOfProbabilities != null) {
+                            IncorrectFileValuesException e
+                                    = new IncorrectFileValuesException("Keyword {" + keyword + "} in line "
+                                    + linesCount + " was found after the part with the keyword «prob».");
+                            toLog.severe(e.getMessage());
+                            throw e;
+                        }
+                        parsingTwoSeparatedParts(line);
+                    }
+                    default -> toLog.finer("Skipped irrelevant line.");
+                }
+            }
+        } catch (IncorrectFileValuesException | BayesianLogicalException e) {
+            throw e;
+        } catch (java.io.IOException e) {
+            IncorrectFileValuesException ex
+                    = new IncorrectFileValuesException("Reading file failure: " + e.getMessage());
+            toLog.log(Level.SEVERE, "File data failure.", e);
+            throw ex;
+        }
+
+        if (this.tableOfProbabilities == null) {
+            IncorrectFileValuesException e =
+                    new IncorrectFileValuesException("Part of the data starting with " +
+                            "the keyword «prob» is missing.");
+            toLog.log(Level.SEVERE, "File data failure.", e);
+            throw e;
+        }
+
+        validateTable();
+        toLog.info(linesCount + " lines were read in one pass.");
+        METRICS.linesParsed(linesCount);
+        METRICS.loadCompleted(started);
+        commitLoad(loadEvent, "readAllStreaming", linesCount);
+    }
+
+
+    /**
+     * Keywords of the header part of a file (everything except «prob»).
+     */
+    static final Set<String> HEADER_KEYWORDS =
+            Set.of("main_thesis", "hypos_count", "hypo", "hypo_chance", "facts_count", "fact", "prob_default");
+
+
+    /**
+     * An open-API method that loads ABSOLUTELY ALL data from a file like {@code readAllStreaming(Path)},
+     * but the part with the keyword «prob» is parsed in parallel on the common {@code ForkJoinPool}
+     * (see {@code readAllParallel(Path, ForkJoinPool)}).
+     * @param pathToTheFile the full path of the file (or <code>null</code> for the current one).
+     * @throws IncorrectFileValuesException failure input (the first broken line, a duplicated or missing cell).
+     * @throws BayesianLogicalException hypotheses chances do not add up to 1.0 or facts are missing.
+     */
+    public void readAllParallel(Path pathToTheFile)
+            throws IncorrectFileValuesException, BayesianLogicalException {
+        readAllParallel(pathToTheFile, ForkJoinPool.commonPool());
+    }
+
+
+    /**
+     * An open-API method for huge files: the header part is read as in {@code readAllStreaming(Path)},
+     * then the part with the keyword «prob» (every line assigns one independent cell) is split into
+     * line-aligned byte ranges, which are parsed in parallel straight into the table
+     * (see {@link ParallelProbabilityParser}).<br>
+     *
+     * <br>The errors do not depend on the order of the threads: the broken line with the smallest offset
+     * (the same line {@code readAllStreaming(Path)} would stop at), otherwise the smallest cell given
+     * more than once, otherwise the smallest missing cell. Unlike the sequential readers,
+     * a cell given twice IS an error here.</br>
+     *
+     * <br>A sparse table (the header declares {@code prob_default}) may leave cells out and is not written
+     * by several threads: its part «prob» is parsed sequentially from the bytes
+     * (as in {@code readProbabilitiesMapped()}).</br>
+     *
+     * @param pathToTheFile the full path of the file (or <code>null</code> for the current one).
+     * @param pool pool of the parsing tasks.
+     * @throws IncorrectFileValuesException failure input (the first broken line, a duplicated or missing cell).
+     * @throws BayesianLogicalException hypotheses chances do not add up to 1.0 or facts are missing.
+     */
+    public void readAllParallel(Path pathToTheFile, ForkJoinPool pool)
+            throws IncorrectFileValuesException, BayesianLogicalException {
+        long started = METRICS.loadStarted();
+        ModelLoadEvent loadEvent = new ModelLoadEvent();
+        loadEvent.begin();
+        if (pathToTheFile == null) {
+            if (this.fileDataPath == null) {
+                IncorrectFileValuesException e
+                        = new IncorrectFileValuesException("Object body's path is null.");
+                toLog.warning(e.getMessage());
+                throw e;
+            }
+            toLog.info("The directory remains the same.");
+        } else {
+            this.fileDataPath = pathToTheFile;
+            toLog.info("Path to the data was changed to " + pathToTheFile);
+        }
+
+        // The body is filled from scratch, nothing is appended to the previous data.
+        this.mainExpression = null;
+        this.hypotheses.clear();
+        this.hyposChances.clear();
+        this.facts.clear();
+        this.hyposCount = 0;
+        this.factsCount = 0;
+        this.tableOfProbabilities = null;
+        clearDefaults();
+        invalidateInference();
+
+        long linesCount;
+        try (java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(this.fileDataPath)) {
+            long sectionStart = ParallelProbabilityParser.findSectionStart(channel, this, toLog);
+            if (sectionStart < 0) {
+                IncorrectFileValuesException e =
+                        new IncorrectFileValuesException("Part of the data starting with " +
+                                "the keyword «prob» is missing.");
+                toLog.log(Level.SEVERE, "File data failure.", e);
+                throw e;
+            }
+
+            String[] headerLines = readHeaderLines(channel, sectionStart);
+            for (String line : headerLines) {
+                if (line.isEmpty()) { continue; }
+
+                int separator = line.indexOf(';');
+                String keyword = (separator < 0 ? line : line.substring(0, separator)).trim().toLowerCase(Locale.ROOT);
+                if (HEADER_KEYWORDS.contains(keyword)) {
+                    parsingTwoSeparatedParts(line);
+                } else {
+                    toLog.finer("Skipped irrelevant line.");
+                }
+            }
+            closeStreamingHeader();
+
+            long probabilityLines;
+            if (this.tableOfProbabilities instanceof ProbabilityModel dense) {
+                probabilityLines = new ParallelProbabilityParser(this, toLog, pool, dense).parse(channel, sectionStart);
+            } else {
+                probabilityLines = new MappedProbabilityParser(this, toLog).parse(this.fileDataPath);
+                validateTable();
+            }
+            linesCount = headerLines.length + probabilityLines;
+        } catch (IncorrectFileValuesException | BayesianLogicalException e) {
+            throw e;
+        } catch (java.io.IOException e) {
+            IncorrectFileValuesException ex
+                    = new IncorrectFileValuesException("Reading file failure: " + e.getMessage());
+            toLog.log(Level.SEVERE, "File data failure.", e);
+            throw ex;
+        }
+
+        invalidateInference();
+        METRICS.linesParsed(linesCount);
+        METRICS.loadCompleted(started);
+        commitLoad(loadEvent, "readAllParallel", linesCount);
+    }
+
+
+    /**
+     * Helper method that decodes the header part of a file (everything before the part «prob»).
+     * The header is small (labels only), so it is decoded at once.
+     * @param channel opened file.
+     * @param sectionStart offset of the part «prob».
+     * @return trimmed lines of the header.
+     * @throws IncorrectFileValuesException the header is larger than 2 GiB (it would not fit into one buffer).
+     * @throws java.io.IOException reading failure.
+     */
+    private static String[] readHeaderLines(java.nio.channels.FileChannel channel, long sectionStart)
+            throws java.io.IOException {
+        if (sectionStart > Integer.MAX_VALUE) {
+            IncorrectFileValuesException e
+                    = new IncorrectFileValuesException("The header part of the file (before the keyword «prob») "
+                    + "takes " + sectionStart + " bytes, but at most " + Integer.MAX_VALUE + " are supported.");
+            toLog.severe(e.getMessage());
+            throw e;
+        }
+        java.nio.ByteBuffer header = java.nio.ByteBuffer.allocate((int) sectionStart);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) { }
+
+        String[] lines = new String(header.array(), 0, header.position(),
+                java.nio.charset.StandardCharsets.UTF_8).split("\n");
+        for (int i = 0; i < lines.length; ++i) { lines[i] = lines[i].trim(); }
+        return lines;
+    }
+
+
+    /**
+     * Check of one cell without side effects: the same conditions as in {@code storeProbability(...)}
+     * (for the parallel parser, which writes the table directly).
+     * @return true, if {@code storeProbability(...)} would accept the cell.
+     */
+    boolean isStorable(int hypoNum, int factNum, double probability) {
+        return hypoNum >= 0 && hypoNum < this.hyposCount
+                && factNum >= 0 && factNum < this.factsCount
+                && isProbabilityInRange(probability);
+    }
+
+
+    /**
+     * The rule of one cell of the table, shared by all readers: [1e-9; 1], NaN is rejected as well.
+     */
+    private boolean isProbabilityInRange(double probability) {
+        return probability >= ABSOLUTE_IMPOSSIBLE && probability <= ABSOLUTE_PROBABILITY;
+    }
+
+
+    /**
+     * Helper method of {@code readAllStreaming(Path)}, which is called on the first line with the keyword «prob».
+     * It checks everything that was read before (as the discrete methods do) and creates the table.
+     * @throws IncorrectFileValuesException missing data or a mismatch of stated and real amounts.
+     * @throws BayesianLogicalException hypotheses chances do not add up to 1.0 or facts are missing.
+     */
+    private void closeStreamingHeader()
+            throws IncorrectFileValuesException, BayesianLogicalException {
+        if (this.hypotheses.isEmpty()) {
+            IncorrectFileValuesException e
+                    = new IncorrectFileValuesException("Hypotheses in fact is missing. " +
+                    "Recheck file for this or other problems!");
+            toLog.severe(e.getMessage());
+            throw e;
+        }
+
+        if (this.hyposCount > 0 && this.hyposCount != this.hypotheses.size()) {
+            IncorrectFileValuesException e
+                    = new IncorrectFileValuesException(
+                    this.hyposCount + " hypotheses were stated, but in fact - " + this.hypotheses.size());
+            toLog.log(Level.SEVERE, e.getMessage());
+            throw e;
+        }
+        this.hyposCount = this.hypotheses.size();
+        checkReadHypotheses();
+
+        if (this.factsCount > 0 && this.factsCount != this.facts.size()) {
+            IncorrectFileValuesException e
+                    = new IncorrectFileValuesException(
+                    this.factsCount + " facts were stated, but in real - " + this.facts.size());
+            toLog.log(Level.SEVERE, e.getMessage());
+            throw e;
+        }
+        checkReadFacts();
+
+        this.tableOfProbabilities = newTable();
+
+        invalidateInference();
+        toLog.finer("The table was initialized.");
+    }
+
+
+    /**
+     * Helper method that creates an empty table for the read hypotheses and facts:
+     * a sparse one with the declared defaults, if there was any {@code prob_default}, otherwise a dense one.
+     * @return new table (its cells are filled by «prob»).
+     * @throws IncorrectFileValuesException a default is declared for a missing hypothesis.
+     */
+    private ProbabilityTable newTable() throws IncorrectFileValuesException {
+        if (this.defaultProbability == 0 && this.hypoDefaults.isEmpty()) {
+            return new ProbabilityModel(this.hyposCount, this.factsCount);
+        }
+
+        SparseProbabilityModel sparse = new SparseProbabilityModel(this.hyposCount, this.factsCount);
+        sparse.setGlobalDefault(this.defaultProbability);
+        for (Map.Entry<Integer, Double> entry : this.hypoDefaults.entrySet()) {
+            if (entry.getKey() >= this.hyposCount) {
+                IncorrectFileValuesException e =
+                        new IncorrectFileValuesException("Hypothesis index " + (entry.getKey() + 1)
+                                + " of the keyword {prob_default} is out of range [1.." + this.hyposCount + "]!");
+                toLog.severe(e.getMessage());
+                throw e;
+            }
+            sparse.setDefault(entry.getKey(), entry.getValue());
+        }
+        toLog.fine("Sparse table was created (" + this.hypoDefaults.size() + " own defaults of hypotheses).");
+        return sparse;
+    }
+
+
+    /**
+     * Helper method that forgets the defaults of a previous file.
+     */
+    private void clearDefaults() {
+        this.defaultProbability = 0;
+        this.hypoDefaults.clear();
+    }
+
+
+    /**
+     * An open-API method that saves the loaded model in the compact binary format
+     * (header with counts, UTF-8 labels and a contiguous table of doubles, see {@link BinaryModelCodec}).
+     * Such a file is loaded by {@code readBinary(Path)} without any parsing of text.
+     * @param target path of the binary file (created or replaced).
+     * @throws BayesianLogicalException there are no hypotheses or their probabilities.
+     * @throws IncorrectFileValuesException writing failure.
+     * @throws CrashException the table is not filled.
+     */
+    public void writeBinary(Path target)
+            throws BayesianLogicalException, IncorrectFileValuesException, CrashException {
+        // The same checks as before inference (also the chances are put into the flat model here).
+        readyEngine();
+
+        try {
+            // The binary format has no defaults: a sparse table is written with all its cells.
+            BinaryModelCodec.write(target, this.mainExpression, this.hypotheses, this.facts,
+                    this.tableOfProbabilities.toDense());
+        } catch (java.io.IOException e) {
+            IncorrectFileValuesException ex
+                    = new IncorrectFileValuesException("Writing of the binary model failure: " + e.getMessage());
+            toLog.log(Level.SEVERE, "Binary model failure.", e);
+            throw ex;
+        }
+        toLog.info("The model was written to the binary file " + target);
+    }
+
+
+    /**
+     * An open-API method that loads ALL data from a binary file written by {@code writeBinary(Path)}.<br>
+     * The file is memory-mapped, the chances and the table are taken from the mapping with bulk copies,
+     * so the load does not depend on the speed of text parsing.
+     * @param pathToTheFile the full path of the binary file.
+     *                      Also, you can use <code>null</code> to try to read a file
+     *                      from the current directory specified earlier.
+     * @throws IncorrectFileValuesException the file is missing, damaged or has an unsupported version.
+     */
+    public void readBinary(Path pathToTheFile) throws IncorrectFileValuesException {
+        long started = METRICS.loadStarted();
+        ModelLoadEvent loadEvent = new ModelLoadEvent();
+        loadEvent.begin();
+        if (pathToTheFile == null) {
+            if (this.fileDataPath == null) {
+                IncorrectFileValuesException e
+                        = new IncorrectFileValuesException("Object body's path is null.");
+                toLog.warning(e.getMessage());
+                throw e;
+            }
+            toLog.info("The directory remains the same.");
+        } else {
+            this.fileDataPath = pathToTheFile;
+            toLog.info("Path to the data was changed to " + pathToTheFile);
+        }
+
+        BinaryModelCodec.Decoded decoded;
+        try {
+            decoded = BinaryModelCodec.read(this.fileDataPath);
+        } catch (IncorrectFileValuesException e) {
+            toLog.severe(e.getMessage());
+            throw e;
+        } catch (java.io.IOException e) {
+            IncorrectFileValuesException ex
+                    = new IncorrectFileValuesException("Reading of the binary model failure: " + e.getMessage());
+            toLog.log(Level.SEVERE, "Binary model failure.", e);
+            throw ex;
+        }
+        checkDecodedValues(decoded.model());
+
+        this.mainExpression = decoded.thesis();
+        this.hypotheses.clear();
+        this.hypotheses.addAll(decoded.hypotheses());
+        this.facts.clear();
+        this.facts.addAll(decoded.facts());
+        this.hyposCount = this.hypotheses.size();
+        this.factsCount = this.facts.size();
+
+        this.tableOfProbabilities = decoded.model();
+        clearDefaults();
+        this.hyposChances.clear();
+        for (int i = 0; i < this.hyposCount; ++i) {
+            this.hyposChances.add(this.tableOfProbabilities.getPrior(i));
+        }
+        invalidateInference();
+
+        validateTable();
+        toLog.info("The binary model (" + this.hyposCount + " x " + this.factsCount + ") was loaded.");
+        METRICS.loadCompleted(started);
+        commitLoad(loadEvent, "readBinary", 0);
+    }
+
+
+    /**
+     * Helper method of {@code readBinary(Path)}: the doubles of a binary file are taken as they are,
+     * so they get the same checks as the text readers do, BEFORE the model replaces the current one
+     * (a damaged file must not give NaN posteriors later).
+     * @param model decoded chances and table.
+     * @throws IncorrectFileValuesException a cell is out of [1e-9; 1] (or NaN), a chance is out of [0; 1],
+     *                                      or the chances do not add up to 1.0.
+     */
+    private void checkDecodedValues(ProbabilityModel model) throws IncorrectFileValuesException {
+        double summaryOfChances = 0.0;
+        for (int i = 0; i < model.getHyposCount(); ++i) {
+            double chance = model.getPrior(i);
+            if (!(chance >= 0.0 && chance <= ABSOLUTE_PROBABILITY)) {
+                throw binaryValueFailure("the chance of hypothesis #" + (i + 1) + " is " + chance);
+            }
+            summaryOfChances += chance;
+        }
+        if (!(Math.abs(summaryOfChances - 1.0) <= ABSOLUTE_IMPOSSIBLE)) {
+            throw binaryValueFailure("the chances of hypotheses add up to " + summaryOfChances + ", not to 1.0");
+        }
+
+        double[] cells = model.cells();
+        for (int k = 0; k < cells.length; ++k) {
+            if (!isProbabilityInRange(cells[k])) {
+                throw binaryValueFailure("the cell [" + (k / model.getFactsCount() + 1) + "; "
+                        + (k % model.getFactsCount() + 1) + "] is " + cells[k]
+                        + " (the probability must be in the range of values [0; 1])");
+            }
+        }
+    }
+
+
+    /**
+     * Builder of the exception for a damaged value of a binary file (logged here).
+     * @return exception to be thrown.
+     */
+    private IncorrectFileValuesException binaryValueFailure(String details) {
+        IncorrectFileValuesException e
+                = new IncorrectFileValuesException("The binary model is damaged: " + details + ".");
+        toLog.severe(e.getMessage());
+        return e;
     }
 
 
@@ -860,17 +1503,23 @@ public class BayesianBody {
      * {@code facts_count} — helper for filling {@code this.factsCount}<br>
      * {@code facts} — helper for filling {@code this.facts}<br>
      * {@code hypos_count} — helper for filling {@code this.hyposCount}<br>
+     * {@code prob_default} — helper for filling {@code this.defaultProbability} and {@code this.hypoDefaults}<br>
      * {@code prob} — helper for filling {@code this.tableOfProbabilities}<br>
      *
      * @param fullFileName string representation of the path
      *                     (in realization transmitted as <code>this.fileDataPath.toString()</code>).
      * @param key keyword, by which the file will be read.
      * @param fourParts flag for keyword «prob» (probability).
+     * @return amount of the passed lines of the file (0, if the file cannot be opened).
      */
-    private void processingKeyword(String fullFileName, final String key, boolean fourParts) {
+    private long processingKeyword(String fullFileName, final String key, boolean fourParts) {
         this.fileDataPath = Paths.get(fullFileName);
         toLog.finer("Checking for \"fourParts\" flag...");
 
+        KeywordPassEvent passEvent = new KeywordPassEvent();
+        passEvent.begin();
+        long linesCount = 0, matchedLines = 0;
+
         try (java.util.Scanner in
                      = new java.util.Scanner(new java.io.File(this.fileDataPath.toString()))) {
             toLog.fine("File was opened.");
@@ -881,6 +1530,7 @@ public class BayesianBody {
 
             while (in.hasNextLine()) {
                 String line = in.nextLine().trim();
+                linesCount++;
 
                 String scanKeyword = line.split(";", -1)[0].toLowerCase().trim();
                 if (line.isBlank() || !scanKeyword.equals(key)) {
@@ -889,6 +1539,7 @@ public class BayesianBody {
                 }
 
                 toLog.info("Line (" + line + ") was checked for «noise».");
+                matchedLines++;
 
                 if (!fourParts) {
                     parsingTwoSeparatedParts(line);
@@ -896,6 +1547,11 @@ public class BayesianBody {
                     parseProbabilityLine(line);
                 }
             }
+            METRICS.linesParsed(linesCount);
+            if (passEvent.shouldCommit()) {
+                passEvent.set(fullFileName, key, this.hyposCount, this.factsCount, linesCount, matchedLines);
+                passEvent.commit();
+            }
 
             if (fourParts) {
                 validateTable();
@@ -907,6 +1563,30 @@ public class BayesianBody {
             toLog.warning("[FileNotFoundError] " + e.getMessage());
             System.err.println("[FileNotFoundError] " + e.getMessage());
         }
+        return linesCount;
+    }
+
+
+    /**
+     * Identity of the model in the JFR events: the path of its file, or its thesis (keyboard input).
+     */
+    private String modelIdentity() {
+        return this.fileDataPath != null ? this.fileDataPath.toString() : this.mainExpression;
+    }
+
+
+    /**
+     * Industrial method that commits the JFR event of a completed load
+     * (the fields are filled only if a recording wants the event, so without a recording it costs nothing).
+     * @param event event begun at the start of the load.
+     * @param reader name of the reading method.
+     * @param lines amount of the passed lines of the file.
+     */
+    private void commitLoad(ModelLoadEvent event, String reader, long lines) {
+        if (event.shouldCommit()) {
+            event.set(modelIdentity(), reader, this.hyposCount, this.factsCount, lines);
+            event.commit();
+        }
     }
 
 
@@ -955,6 +1635,7 @@ public class BayesianBody {
             case "hypo_chance" -> {
                 toLog.fine("A keyword `hypo_chance` was detected.");
                 this.hyposChances.add(parseDoubleSafe(value, "hypo_chance"));
+                invalidateInference();
             }
             case "facts_count" -> {
                 toLog.fine("A keyword `facts_count` was detected.");
@@ -964,11 +1645,49 @@ public class BayesianBody {
                 toLog.fine("A keyword `fact` was detected.");
                 this.facts.add(value);
             }
+            case "prob_default" -> {
+                toLog.fine("A keyword `prob_default` was detected.");
+                parseDefaultProbability(value);
+            }
             default -> toLog.warning("An unknown key was detected.");
         }
     }
 
 
+    /**
+     * Helper method for the value of the keyword {@code prob_default}:
+     * {@code <p>} is the global default, {@code <hypo>;<p>} is the own default of the hypothesis (from 1).
+     * @param value part of the line after the keyword.
+     * @throws IncorrectFileValuesException broken value, invalid index or probability.
+     */
+    private void parseDefaultProbability(String value) throws IncorrectFileValuesException {
+        String[] parts = value.split(";", -1);
+        if (parts.length > 2) {
+            IncorrectFileValuesException e
+                    = new IncorrectFileValuesException("Keyword {prob_default} takes `<p>` or `<hypo>;<p>`: " + value);
+            toLog.severe(e.getMessage());
+            throw e;
+        }
+
+        double probability = parseDoubleSafe(parts[parts.length - 1].trim(), "prob_default");
+        if (!isProbabilityInRange(probability)) {
+            IncorrectFileValuesException e =
+                    new IncorrectFileValuesException("Invalid default probability " + probability +
+                            ": the probability must be in the range of values (0; 1].");
+            toLog.severe(e.getMessage());
+            throw e;
+        }
+
+        if (parts.length == 1) {
+            this.defaultProbability = probability;
+        } else {
+            // A natural number only, so the index is never negative.
+            this.hypoDefaults.put(parseIntSafe(parts[0].trim(), "prob_default") - 1, probability);
+        }
+        invalidateInference();
+    }
+
+
     /**
      * A private intermediate method that is taken out specifically for unloading code.
      * It processes strings with four parameters and the keyword «prob».
@@ -982,11 +1701,7 @@ public class BayesianBody {
         String[] parts = trimmedLine.split(";", -1);
 
         if (parts.length != 4) {
-            IncorrectFileValuesException e =
-                    new IncorrectFileValuesException("The line with the keyword \"prob\" must contain" +
-                            " 4 values separated by the symbol «;»");
-            toLog.log(Level.SEVERE, "Incorrect separating by symbol \";\"", e);
-            throw e;
+            throw probabilityPartsFailure();
         }
 
         assert parts[0].toLowerCase().trim().equals("prob") : "The line with the «tabular» probability " +
@@ -1008,10 +1723,24 @@ public class BayesianBody {
             factNum = Integer.parseInt(parts[2].trim()) - 1;
             probability = Double.parseDouble(parts[3].trim());
         } catch (NumberFormatException e) {
-            toLog.log(Level.WARNING, "`parts` has a non-number value.");
-            throw new IncorrectFileValuesException("Non-value argument in parsing by `prob`.");
+            throw probabilityValueFailure();
         }
 
+        storeProbability(hypoNum, factNum, probability);
+    }
+
+
+    /**
+     * Helper method that puts one checked probability into the table.
+     * Shared by the line parser {@code parseProbabilityLine(String)} and the byte parser
+     * {@link MappedProbabilityParser}, so both of them report the same errors.
+     * @param hypoNum zero-based hypothesis index.
+     * @param factNum zero-based fact index.
+     * @param probability value in the range (0; 1].
+     * @throws IncorrectFileValuesException index is out of range or the probability is invalid.
+     */
+    void storeProbability(int hypoNum, int factNum, double probability)
+            throws IncorrectFileValuesException {
         // Validating the hypotheses amount.
         if (hypoNum < 0 || hypoNum >= this.hyposCount) {
             IncorrectFileValuesException e =
@@ -1031,7 +1760,7 @@ public class BayesianBody {
         }
 
         // Validating the probability (0; 1].
-        if (probability > ABSOLUTE_PROBABILITY || probability < ABSOLUTE_IMPOSSIBLE) {
+        if (!isProbabilityInRange(probability)) {
             IncorrectFileValuesException e =
                     new IncorrectFileValuesException("Invalid Double entered: " +
                             " the probability must be in the range of values [0; 1].");
@@ -1039,8 +1768,34 @@ public class BayesianBody {
             throw e;
         }
 
-        this.tableOfProbabilities[hypoNum][factNum] = probability;
-        toLog.finer("Table position [" + hypoNum + "][" + factNum + "] was filled.");
+        this.tableOfProbabilities.set(hypoNum, factNum, probability);
+        invalidateInference();
+        if (toLog.isLoggable(Level.FINER)) {
+            toLog.finer("Table position [" + hypoNum + "][" + factNum + "] was filled.");
+        }
+    }
+
+
+    /**
+     * Builder of the exception for a «prob» line with a wrong amount of parts (logged here).
+     * @return exception to be thrown.
+     */
+    IncorrectFileValuesException probabilityPartsFailure() {
+        IncorrectFileValuesException e =
+                new IncorrectFileValuesException("The line with the keyword \"prob\" must contain" +
+                        " 4 values separated by the symbol «;»");
+        toLog.log(Level.SEVERE, "Incorrect separating by symbol \";\"", e);
+        return e;
+    }
+
+
+    /**
+     * Builder of the exception for a «prob» line with a non-number argument (logged here).
+     * @return exception to be thrown.
+     */
+    IncorrectFileValuesException probabilityValueFailure() {
+        toLog.log(Level.WARNING, "`parts` has a non-number value.");
+        return new IncorrectFileValuesException("Non-value argument in parsing by `prob`.");
     }
 
 
@@ -1060,7 +1815,7 @@ public class BayesianBody {
         }
 
         String trimmed = val.trim();
-        if (!val.matches("([1-9]\\d*)")) {
+        if (!isDigitsOnly(val) || val.charAt(0) == '0') {
             IncorrectFileValuesException e =
                     new IncorrectFileValuesException("Invalid natural number in " + param);
             toLog.severe(e.getMessage());
@@ -1084,13 +1839,51 @@ public class BayesianBody {
      * @param param current keyword.
      */
     private double parseDoubleSafe(String val, String param) throws IncorrectFileValuesException {
-        if (!val.matches("\\d+(\\.\\d+)?")) {
+        if (!isPlainDecimal(val, false)) {
             throw new IncorrectFileValuesException("Non-double in " + param);
         }
         return Double.parseDouble(val);
     }
 
 
+    /**
+     * Character check without regular expressions (it is called for every value of the file).
+     * @param val checked string.
+     * @return true, if the string is not empty and contains only the digits 0-9 (as {@code \\d+}).
+     */
+    private static boolean isDigitsOnly(String val) {
+        return isDigitsOnly(val, 0, val.length());
+    }
+
+
+    /**
+     * Character check of the part {@code [from; to)} of the string, nothing is allocated.
+     * @return true, if the part is not empty and contains only the digits 0-9.
+     */
+    private static boolean isDigitsOnly(String val, int from, int to) {
+        if (from >= to) { return false; }
+        for (int i = from; i < to; ++i) {
+            char c = val.charAt(i);
+            if (c < '0' || c > '9') { return false; }
+        }
+        return true;
+    }
+
+
+    /**
+     * Character check without regular expressions for a decimal like {@code 12} or {@code 0.35}.
+     * @param val checked string.
+     * @param allowMinus whether a leading «-» is allowed (as {@code -?\\d+(\\.\\d+)?}).
+     * @return true, if the string is a decimal number written with a DOT.
+     */
+    private static boolean isPlainDecimal(String val, boolean allowMinus) {
+        int start = (allowMinus && val.startsWith("-")) ? 1 : 0;
+        int dot = val.indexOf('.', start);
+        if (dot < 0) { return isDigitsOnly(val, start, val.length()); }
+        return isDigitsOnly(val, start, dot) && isDigitsOnly(val, dot + 1, val.length());
+    }
+
+
 //  ============================================================================================================
 //  🔸— «PART OF THE INTERNAL CALCULATIONS OF THE PROGRAM»
 //  ============================================================================================================
@@ -1101,13 +1894,92 @@ public class BayesianBody {
     private final String[] cachedResult = new String[]{ null };
 
     /**
-     * Method where probabilities are multiplied (intermediate method).
-     * @return array with probabilities (type: double[])
+     * Log-space engine of the current model (created on demand, see {@link #logSpaceEngine()}).
+     * Reset to <code>null</code> by every change of the table or the chances.
+     */
+    private LogSpaceEngine logEngine = null;
+
+    /**
+     * Posteriors of the recently asked evidence patterns (see {@link PosteriorCache}).
+     * Cleared by every change of the table or the chances.
+     */
+    private final PosteriorCache posteriorCache = new PosteriorCache();
+
+    /**
+     * Industrial method that drops everything computed from the table and the chances.
+     * Must be called after every change of {@code this.tableOfProbabilities} or {@code this.hyposChances}.
+     */
+    private void invalidateInference() {
+        this.logEngine = null;
+        this.posteriorCache.clear();
+    }
+
+    /**
+     * Getter of the log-space engine: the logarithms of the model are computed once
+     * and reused until the table or the chances change.
+     * @return ready-to-use engine.
+     */
+    private LogSpaceEngine logSpaceEngine() {
+        if (this.logEngine == null) {
+            this.tableOfProbabilities.loadPriors(this.hyposChances);
+            this.logEngine = new LogSpaceEngine(this.tableOfProbabilities);
+            toLog.fine("Log-space engine was built for the current table (kernel: "
+                    + this.logEngine.getKernel().name() + ").");
+        }
+        return this.logEngine;
+    }
+
+    /**
+     * Method where probabilities are "multiplied" (intermediate method).
+     * The product is computed as a sum of logarithms, so thousands of facts do not underflow it to zero.
+     * @return array with posterior probabilities (type: double[], their sum is 1.0).
      */
     private double[] result()
             throws BayesianLogicalException, CrashException {
-        double[] result = new double[this.hypotheses.size()];
+        int columns = this.tableOfProbabilities == null ? this.factsCount : this.tableOfProbabilities.getFactsCount();
+        return cachedPosteriors(Evidence.allPresent(columns));
+    }
+
+    /**
+     * Intermediate method that gives the posteriors of an evidence pattern from the LRU cache
+     * or computes (and keeps) them. A hit needs no validation: the cache is filled only by a valid model
+     * and is cleared by every change of it.
+     * @param evidence state of every fact.
+     * @return new array of posteriors.
+     */
+    private double[] cachedPosteriors(Evidence evidence)
+            throws BayesianLogicalException, CrashException {
+        long started = System.nanoTime();
+        InferenceEvent event = new InferenceEvent();
+        event.begin();
+
+        double[] posteriors = this.posteriorCache.get(evidence);
+        boolean cached = posteriors != null;
+        if (cached) {
+            METRICS.posteriorCacheHit();
+        } else {
+            METRICS.posteriorCacheMiss();
+            posteriors = readyEngine().posteriors(evidence);
+            this.posteriorCache.put(evidence, posteriors);
+        }
+
+        METRICS.inferred(started);
+        if (event.shouldCommit()) {
+            event.set(modelIdentity(), posteriors.length, evidence.size(),
+                    evidence.countOf(FactState.PRESENT), evidence.countOf(FactState.ABSENT), cached);
+            event.commit();
+        }
+        return posteriors;
+    }
 
+    /**
+     * Intermediate method that checks the body before any inference and gives the engine of the model.
+     * @return ready-to-use engine.
+     * @throws BayesianLogicalException there are no hypotheses or their probabilities.
+     * @throws CrashException the table is not filled.
+     */
+    private LogSpaceEngine readyEngine()
+            throws BayesianLogicalException, CrashException {
         // validating by the industrial method.
         validateTable();
 
@@ -1116,41 +1988,128 @@ public class BayesianBody {
                     "There are no hypotheses or their probabilities.");
         }
 
-        for (int i = 0; i < hyposChances.size(); ++i) {
-            double coupleCalcs = this.hyposChances.get(i);
-            for (int j = 0; j < this.facts.size(); ++j) {
-                coupleCalcs *= this.tableOfProbabilities[i][j];
-            }
-            result[i] = coupleCalcs;
-        }
+        return logSpaceEngine();
+    }
+
+    /**
+     * An open-API method for getting the exact posterior probabilities of hypotheses
+     * (in the order of {@code getHypotheses()}), without rounding to percents.
+     * @return array of posteriors, their sum is 1.0.
+     * @throws BayesianLogicalException there are no hypotheses or their probabilities.
+     * @throws CrashException the table is not filled, or every hypothesis is impossible.
+     */
+    public double[] getPosteriorArray() throws BayesianLogicalException, CrashException {
+        return result();
+    }
 
-        return result;
+    /**
+     * An open-API method for getting the exact posterior probabilities for one evidence vector
+     * (every fact can be present, absent or unknown, see {@link Evidence}).
+     * @param evidence state of every fact (in the order of {@code getFacts()}).
+     * @return array of posteriors, their sum is 1.0.
+     * @throws BayesianLogicalException there are no hypotheses or their probabilities.
+     * @throws CrashException the table is not filled, the evidence does not match the facts,
+     *                        or every hypothesis is impossible.
+     */
+    public double[] getPosteriorArray(Evidence evidence) throws BayesianLogicalException, CrashException {
+        return cachedPosteriors(evidence);
     }
 
     /**
-     * An open method that allows you to get the final chance array (converted to 100% ratio).
-     * @return array with int[] type.
+     * An open-API method for scoring many cases against the loaded model at once
+     * (the file is read once, the cases are spread across the cores).
+     * @param batch evidence vectors (every one in the order of {@code getFacts()}).
+     * @return posterior matrix {@code [case][hypothesis]}.
+     * @throws BayesianLogicalException there are no hypotheses or their probabilities.
+     * @throws CrashException the table is not filled, some evidence does not match the facts,
+     *                        or makes every hypothesis impossible.
      */
-    private int[] getProbabilityArray() throws BayesianLogicalException {
-        final double[] separated = result();
-        final double LOCAL_EPSILON = 1e-10;
+    public double[][] getPosteriorBatch(List<Evidence> batch) throws BayesianLogicalException, CrashException {
+        return readyEngine().posteriorBatch(batch);
+    }
 
-        double total = 0.0;
-        int[] percentage = new int[separated.length];
+    /**
+     * An open-API method for models with very many hypotheses, when only the best few are needed:
+     * the hypotheses are scanned once with a bounded heap and an online normalizer,
+     * so the posteriors of the rest are neither stored nor sorted (the result is not cached).
+     * @param k amount of the wanted hypotheses (all of them, if k is larger than their count).
+     * @param evidence state of every fact (in the order of {@code getFacts()}).
+     * @return the best hypotheses from the most probable one; the name of each is {@code getHypotheses().get(index)}.
+     * @throws BayesianLogicalException there are no hypotheses or their probabilities.
+     * @throws CrashException k is not positive, the table is not filled, the evidence does not match the facts,
+     *                        or every hypothesis is impossible.
+     */
+    public List<RankedHypothesis> topK(int k, Evidence evidence) throws BayesianLogicalException, CrashException {
+        return readyEngine().topK(k, evidence);
+    }
 
-        for (double position : separated) {
-            total += position;
-        }
+    /**
+     * An open-API method for huge models under a latency budget: the facts are added from the most
+     * discriminating one, and a hypothesis is dropped once it falls {@code logRatio} (natural logarithm
+     * of the likelihood ratio) below the leader even in the best case (the result is not cached).
+     * @param evidence state of every fact (in the order of {@code getFacts()}).
+     * @param logRatio margin of pruning (for example, 20: the dropped hypotheses are e^20 times less likely).
+     * @return posteriors (0 for the dropped hypotheses) with the bound of the error brought by the pruning.
+     * @throws BayesianLogicalException there are no hypotheses or their probabilities.
+     * @throws CrashException the margin is not positive, the table is not filled,
+     *                        the evidence does not match the facts, or every hypothesis is impossible.
+     */
+    public PrunedPosteriors getPrunedPosteriors(Evidence evidence, double logRatio)
+            throws BayesianLogicalException, CrashException {
+        return readyEngine().prunedPosteriors(evidence, logRatio);
+    }
 
-        if (Math.abs(total) < LOCAL_EPSILON) {
-            throw new CrashException("Division by zero.");
-        }
+    /**
+     * An open-API method for interactive sessions, where facts are added (or retracted) one by one:
+     * every update of the returned state costs O(H) instead of the full recalculation.
+     * The state is bound to the current table, later changes of the body do not affect it.
+     * @return updatable posterior without observations (see {@link PosteriorState}).
+     * @throws BayesianLogicalException there are no hypotheses or their probabilities.
+     * @throws CrashException the table is not filled.
+     */
+    public PosteriorState openPosteriorState() throws BayesianLogicalException, CrashException {
+        return readyEngine().newPosteriorState();
+    }
 
-        for (int i = 0; i < percentage.length; ++i) {
-            percentage[i] = (int) Math.round((separated[i] / total) * 100);
-        }
+    /**
+     * An open-API method that freezes the current model into an immutable snapshot.
+     * Unlike the body (which mixes the parsing state with inference), the snapshot can be shared
+     * between any number of threads: they may run inference on it concurrently, without locks.
+     * Later changes of the body do not affect the snapshot.
+     * @return compiled model (see {@link CompiledBayesianModel}).
+     * @throws BayesianLogicalException there are no hypotheses or their probabilities.
+     * @throws CrashException the table is not filled.
+     */
+    public CompiledBayesianModel compile() throws BayesianLogicalException, CrashException {
+        LogSpaceEngine engine = readyEngine();
+        CompiledBayesianModel compiled = new CompiledBayesianModel(this.mainExpression,
+                this.hypotheses, this.facts, this.tableOfProbabilities.copy(), engine);
+        toLog.info("The model was compiled: " + compiled);
+        return compiled;
+    }
 
-        return percentage;
+    /**
+     * An open-API method that computes the result once (labels + posteriors with ALL facts observed),
+     * so it can be rendered by any {@link ResultRenderer} without recomputation.
+     * @return computed result.
+     * @throws BayesianLogicalException there are no hypotheses or their probabilities.
+     * @throws CrashException the table is not filled, or every hypothesis is impossible.
+     */
+    public InferenceResult getInferenceResult() throws BayesianLogicalException, CrashException {
+        return new InferenceResult(this.mainExpression, this.hypotheses, this.facts, null, result());
+    }
+
+    /**
+     * An open-API method that computes the result for one evidence vector (see {@link Evidence}).
+     * @param evidence state of every fact (in the order of {@code getFacts()}).
+     * @return computed result.
+     * @throws BayesianLogicalException there are no hypotheses or their probabilities.
+     * @throws CrashException the table is not filled, the evidence does not match the facts,
+     *                        or every hypothesis is impossible.
+     */
+    public InferenceResult getInferenceResult(Evidence evidence) throws BayesianLogicalException, CrashException {
+        return new InferenceResult(this.mainExpression, this.hypotheses, this.facts, evidence,
+                cachedPosteriors(evidence));
     }
 
     /**
@@ -1162,33 +2121,38 @@ public class BayesianBody {
      */
     public String getStringResult(boolean needToCash)
             throws BayesianLogicalException, CrashException {
-        if (mainExpressionIsNull()) {
-            throw new BayesianLogicalException("Semantic error: the main thesis of the class is missing.");
-        } else if (this.facts.isEmpty()) {
-            throw new BayesianLogicalException("Semantic error: class facts are missing.");
-        }
-
-        StringBuilder outputString = new StringBuilder();
-
-        // «wallID»: 1.
-        // Upper ceiling of symbols («▓») + main thesis
-        outputString.append(getSymbolPart(1));
-
-        // «wallID»: 2.
-        // The second ceiling («▓»), separating the main thesis from the list of all the facts.
-        outputString.append(getSymbolPart(2));
-
-        // «wallID»: 3.
-        // Central ceiling printing another symbol («░») + hypotheses + calculations.
-        outputString.append(getSymbolPart(3));
-
-        // «wallID»: 4.
-        // Floor symbols («▓»)
-        outputString.append(getSymbolPart(4));
-
-        if (needToCash) { this.cachedResult[0] = outputString.toString(); }
+        InferenceResult result = getPrintableResult();
+        long started = System.nanoTime();
+        RenderEvent event = new RenderEvent();
+        event.begin();
+        ResultRenderer renderer = ResultRenderer.boxArt();
+        String outputString = renderer.renderToString(result);
+        METRICS.rendered(started);
+        commitRender(event, renderer);
+
+        if (needToCash) { this.cachedResult[0] = outputString; }
+
+        return outputString;
+    }
 
-        return needToCash ? this.cachedResult[0] : outputString.toString();
+    /**
+     * An open-API method that writes the result straight into a stream, a writer or a builder
+     * (the whole output is never built as one string).
+     * @param renderer format of the output (box art, plain text, JSON: see {@link ResultRenderer}).
+     * @param out target of the text.
+     * @throws BayesianLogicalException semantic exceptions (lack of facts and thesis).
+     * @throws CrashException the table is not filled, or every hypothesis is impossible.
+     * @throws IOException writing failure of the target.
+     */
+    public void renderResult(ResultRenderer renderer, Appendable out)
+            throws BayesianLogicalException, CrashException, IOException {
+        InferenceResult result = getPrintableResult();
+        long started = System.nanoTime();
+        RenderEvent event = new RenderEvent();
+        event.begin();
+        renderer.render(result, out);
+        METRICS.rendered(started);
+        commitRender(event, renderer);
     }
 
     /**
@@ -1198,111 +2162,51 @@ public class BayesianBody {
      * @throws CrashException error getting row by non-existent key.
      */
     public void outputPrettyResult() throws BayesianLogicalException, CrashException {
-        System.out.println(getStringResult(false));
+        try {
+            renderResult(ResultRenderer.boxArt(), System.out);
+        } catch (IOException e) {
+            // PrintStream never throws it.
+            throw new CrashException("Console output failed: " + e.getMessage());
+        }
+        System.out.println();
     }
 
     /**
-     * A closed method that goes through all available hypotheses and identifies a long.
-     * @return longest string hypothesis.
+     * Industrial method that commits the JFR event of a rendering (only if a recording wants it).
      */
-    private String getLongestHypothesis() {
-        if (this.hypotheses.isEmpty()) {
-            if (this.mainExpression == null) { return null; }
-            else { return this.mainExpression; }
+    private void commitRender(RenderEvent event, ResultRenderer renderer) {
+        if (event.shouldCommit()) {
+            event.set(modelIdentity(), renderer.getClass().getSimpleName(), this.hypotheses.size(), this.facts.size());
+            event.commit();
         }
-        String longest = this.hypotheses.getFirst();
-        for (int i = 0; i < this.hypotheses.size(); ++i) {
-            if (this.hypotheses.get(i).length() > longest.length()) { longest = this.hypotheses.get(i); }
-        }
-
-        return longest;
     }
 
     /**
-     *
-     * @param wallNumber variable showing, which part we will print.
-     * @return string part (there are 4 of them in total).
-     * @throws BayesianLogicalException taken into account in (@code getProbabilityArray()).
-     * @throws CrashException critical exceptions.
+     * Intermediate method: the semantic checks of the output, then the result.
+     * @throws BayesianLogicalException semantic exceptions (lack of facts and thesis).
      */
-    private String getSymbolPart(final int wallNumber)
-            throws BayesianLogicalException, CrashException {
-        if (!(wallNumber > 0 && wallNumber < 5)) {
-            throw new CrashException("Invalid «ID» for symbol wall number plate.");
-        }
-
-        StringBuilder sb = new StringBuilder();
-        // Setting up the key string
-        String keyString = getLongestHypothesis();
-        if (keyString == null) {
-            keyString = "";
-        }
-
-        int wallLength = 30 + keyString.length();
-        if (wallNumber == 1) {
-            repeatWallChar(sb, '▓', wallLength);
-
-            // Top «wall» of hypotheses.
-            return sb.append(">> \"").append(this.mainExpression).append("\"\n").toString();
-
-        } else if (wallNumber == 2) {
-            repeatWallChar(sb, '▓', wallLength);
-
-            sb.append("Considering the facts:\n");
-            for (var fact : this.facts) {
-                sb.append("— \"").append(fact).append("\"\n");
-            }
-
-            return sb.toString();
-
-        } else if (wallNumber == 3) {
-            repeatWallChar(sb, '░', wallLength);
-
-            final int[] probabilityArray = getProbabilityArray();
-
-            // Floor «wall» of hypotheses.
-            for (int i = 0; i < probabilityArray.length; ++i) {
-                if (this.hypotheses.get(i).length() < keyString.length()) {
-                    int differenceBlanks = keyString.length() - this.hypotheses.get(i).length();
-                    sb.append("• «")
-                            .append(this.hypotheses.get(i))
-                            .append("» ");
-
-                    for (int blank = 0; blank < differenceBlanks; ++blank) { sb.append(" "); }
-
-                    sb.append("will have a chance: ")
-                            .append(probabilityArray[i]).append("%\n");
-                }
-                else {
-                    sb.append("• «").append(this.hypotheses.get(i))
-                            .append("» will have a chance: ")
-                            .append(probabilityArray[i]).append("%\n");
-                }
-            }
-            return sb.toString();
+    private InferenceResult getPrintableResult() throws BayesianLogicalException, CrashException {
+        if (mainExpressionIsNull()) {
+            throw new BayesianLogicalException("Semantic error: the main thesis of the class is missing.");
+        } else if (this.facts.isEmpty()) {
+            throw new BayesianLogicalException("Semantic error: class facts are missing.");
         }
-
-        // else if (wallNumber == 4)
-        repeatWallChar(sb, '▓', wallLength);
-        return sb.toString();
+        return getInferenceResult();
     }
 
     /**
-     * Helper method that replaces 2-3 lines of code that are spent on drawing a wall
-     * @param builder StringBuilder instance
-     * @param c symbol, that will be repeated.
-     * @param count number of times.
+     * Getter of last cached result of calculations.
      */
-    private void repeatWallChar(StringBuilder builder, char c, int count) {
-        for (int cur = 0; cur < count; cur++) { builder.append(c); }
-        builder.append("\n");
+    public String getCachedResultString() {
+        return this.cachedResult[0] == null ? null : this.cachedResult[0];
     }
 
     /**
-     * Getter of last cached result of calculations.
+     * Getter of the statistics of the posterior cache.
+     * @return {hits, misses, kept patterns}.
      */
-    public String getCachedResultString() {
-        return this.cachedResult[0] == null ? null : this.cachedResult[0];
+    public long[] getPosteriorCacheStats() {
+        return new long[]{ this.posteriorCache.getHits(), this.posteriorCache.getMisses(), this.posteriorCache.size() };
     }
 
 //  ============================================================================================================
@@ -1345,21 +2249,42 @@ public class BayesianBody {
         return this.factsCount == 0;
     }
 
+    /**
+     * The largest amount of missing cells listed in the message of {@code validateTable()}.
+     */
+    private static final int MAX_REPORTED_CELLS = 10;
+
     /**
      * A method that could be of a logical type.
      * Validates the data in the table, and throws an exception in case of a mismatch.<br>
+     * The table keeps its fill state while it is filled, so the check is O(1), not a scan of every cell.<br>
      * When inheriting a class and modifying a table, it is recommended to override the method.
-     * @throws CrashException null-pointer-exceptions.
+     * @throws CrashException null-pointer-exceptions, or missing cells (listed as [hypothesis; fact], from 1).
      */
     protected void validateTable() throws CrashException {
+        long started = System.nanoTime();
+        ValidationEvent event = new ValidationEvent();
+        event.begin();
         if (this.tableOfProbabilities == null) {
             throw new CrashException("The table is empty (null).");
         }
-        for (var row : this.tableOfProbabilities) {
-            if (row == null) { throw new CrashException("The line is empty (null)."); }
-            for (var col : row) {
-                if (col == 0) { throw new CrashException("Probability cannot take the value 0!"); }
+        long missing = this.tableOfProbabilities.missingCount();
+        if (missing > 0) {
+            StringBuilder message = new StringBuilder("Probability cannot take the value 0! Missing cells ("
+                    + missing + ") [hypothesis; fact]:");
+            int factsInRow = this.tableOfProbabilities.getFactsCount();
+            for (int index : this.tableOfProbabilities.missingCells(MAX_REPORTED_CELLS)) {
+                message.append(" [").append(index / factsInRow + 1).append("; ")
+                        .append(index % factsInRow + 1).append(']');
             }
+            if (missing > MAX_REPORTED_CELLS) { message.append(" ..."); }
+            throw new CrashException(message.toString());
+        }
+        METRICS.validated(started);
+        if (event.shouldCommit()) {
+            event.set(modelIdentity(), this.tableOfProbabilities.getHyposCount(),
+                    this.tableOfProbabilities.getFactsCount());
+            event.commit();
         }
     }
 
@@ -1403,11 +2328,11 @@ public class BayesianBody {
         }
 
         // Check for table sameness.
-        double[][] thisTable = this.tableOfProbabilities,
+        ProbabilityTable thisTable = this.tableOfProbabilities,
                 otherTable = other.tableOfProbabilities;
         if (thisTable == null && otherTable == null) { return true; }
         else if (thisTable == null || otherTable == null) { return false; }
-        else { return java.util.Arrays.deepEquals(this.tableOfProbabilities, other.tableOfProbabilities); }
+        else { return thisTable.sameTable(otherTable); }
     }
 
     /**
@@ -1503,9 +2428,9 @@ public class BayesianBody {
                     + hyposChances.get(i));
         }
         System.out.println(factsCount);
-        for (int i = 0; i < this.tableOfProbabilities.length; ++i) {
-            for (int j = 0; j < this.tableOfProbabilities[i].length; ++j) {
-                System.out.print(this.tableOfProbabilities[i][j] + " ");
+        for (int i = 0; i < this.tableOfProbabilities.getHyposCount(); ++i) {
+            for (int j = 0; j < this.tableOfProbabilities.getFactsCount(); ++j) {
+                System.out.print(this.tableOfProbabilities.get(i, j) + " ");
             }
             System.out.println();
         }
@@ -0,0 +1,164 @@
+package pets.bayesianlogic.stuff;
+
+import pets.bayesianlogic.except.CrashException;
+
+import java.util.Arrays;
+
+/**
+ * Pruned (beam) inference of a {@link LogSpaceEngine}. <br>
+ * The observed facts are sorted by how well they discriminate between hypotheses
+ * (the spread of their contribution across hypotheses, the widest first), and added to the scores
+ * in blocks of growing size. After every block the best possible final score of every alive hypothesis
+ * (its score + the largest contributions of the remaining facts) is compared with the worst possible final
+ * score of the leader (its score + the smallest contributions of the remaining facts):
+ * the hypothesis is dropped, if it is more than the margin below. So the hopeless hypotheses
+ * are not carried through all facts, and the leader itself can never be dropped. <br>
+ * The best possible final scores of the dropped hypotheses are summed (log-sum-exp),
+ * which gives the bound of the posterior mass lost by the pruning.
+ * @author Kolesnikov Stephan
+ */
+final class BeamPruner {
+
+    /**
+     * Size of the first block of facts; every next block is twice larger,
+     * so the hopeless hypotheses are dropped early, and the checks cost O(H log F) in total.
+     */
+    private static final int FIRST_BLOCK = 4;
+
+    /**
+     * Bits of {@code Float.POSITIVE_INFINITY}: the largest bits of a non-negative float that is not NaN.
+     */
+    private static final int FLOAT_INFINITY_BITS = Float.floatToIntBits(Float.POSITIVE_INFINITY);
+
+    private BeamPruner() {}
+
+    /**
+     * @param engine engine of the model.
+     * @param evidence checked evidence vector.
+     * @param logRatio positive margin of pruning (natural logarithm).
+     * @return posteriors of the alive hypotheses and the error bound.
+     * @throws CrashException every hypothesis is impossible.
+     */
+    static PrunedPosteriors run(LogSpaceEngine engine, Evidence evidence, double logRatio) throws CrashException {
+        int hyposCount = engine.getHyposCount();
+        int[] order = discriminatingOrder(engine, evidence);
+        int observed = order.length;
+
+        // Bounds of the rest of the facts: suffix sums from the position t.
+        double[] restMax = new double[observed + 1], restMin = new double[observed + 1];
+        for (int t = observed - 1; t >= 0; --t) {
+            FactState state = evidence.get(order[t]);
+            restMax[t] = restMax[t + 1] + engine.maxContribution(order[t], state);
+            restMin[t] = restMin[t + 1] + engine.minContribution(order[t], state);
+        }
+
+        double[] scores = new double[hyposCount];
+        int[] alive = new int[hyposCount];
+        for (int i = 0; i < hyposCount; ++i) {
+            scores[i] = engine.logPrior(i);
+            alive[i] = i;
+        }
+        int aliveCount = hyposCount;
+
+        double prunedMax = Double.NEGATIVE_INFINITY, prunedSum = 0.0;
+        int blockSize = FIRST_BLOCK;
+        for (int from = 0; from < observed; from += blockSize, blockSize *= 2) {
+            int to = Math.min(observed, from + blockSize);
+            int[][] block = splitBlock(evidence, order, from, to);
+
+            // Every alive row is scored over the whole block at once (row-wise, as the full inference does).
+            double leader = Double.NEGATIVE_INFINITY;
+            for (int a = 0; a < aliveCount; ++a) {
+                int hypo = alive[a];
+                scores[hypo] += engine.blockContribution(hypo, block[0], block[1]);
+                leader = Math.max(leader, scores[hypo]);
+            }
+
+            double floor = leader + restMin[to] - logRatio;
+            if (aliveCount == 1 || !(floor > Double.NEGATIVE_INFINITY)) { continue; }
+
+            int kept = 0;
+            for (int a = 0; a < aliveCount; ++a) {
+                int hypo = alive[a];
+                double best = scores[hypo] + restMax[to];
+                if (best >= floor) {
+                    alive[kept++] = hypo;
+                } else if (best > prunedMax) {
+                    // Online log-sum-exp of the best possible scores of the pruned hypotheses.
+                    prunedSum = prunedSum * Math.exp(prunedMax - best) + 1.0;
+                    prunedMax = best;
+                } else if (best > Double.NEGATIVE_INFINITY) {
+                    prunedSum += Math.exp(best - prunedMax);
+                }
+            }
+            aliveCount = kept;
+        }
+
+        double[] keptScores = new double[aliveCount];
+        for (int a = 0; a < aliveCount; ++a) { keptScores[a] = scores[alive[a]]; }
+        double normalizer = LogSpaceEngine.logSumExp(keptScores);
+        if (normalizer == Double.NEGATIVE_INFINITY || Double.isNaN(normalizer)) {
+            throw new CrashException("Division by zero.");
+        }
+
+        double[] posteriors = new double[hyposCount];
+        for (int a = 0; a < aliveCount; ++a) {
+            posteriors[alive[a]] = Math.exp(scores[alive[a]] - normalizer);
+        }
+
+        // Lost mass: U / (Z_kept + U) with U = Σ exp(best possible scores of the pruned),
+        // Z_kept is taken from the FINAL scores of the kept hypotheses (all facts added).
+        double errorBound = 0.0;
+        if (prunedMax > Double.NEGATIVE_INFINITY) {
+            double logLost = prunedMax + Math.log(prunedSum);
+            errorBound = 1.0 / (1.0 + Math.exp(normalizer - logLost));
+        }
+        return new PrunedPosteriors(posteriors, hyposCount - aliveCount, errorBound);
+    }
+
+    /**
+     * Present and absent facts of the block {@code order[from; to)}.
+     * @return {present facts, absent facts}.
+     */
+    private static int[][] splitBlock(Evidence evidence, int[] order, int from, int to) {
+        int presentCount = 0;
+        for (int t = from; t < to; ++t) {
+            if (evidence.get(order[t]) == FactState.PRESENT) { presentCount++; }
+        }
+
+        int[] present = new int[presentCount], absent = new int[to - from - presentCount];
+        for (int t = from, p = 0, q = 0; t < to; ++t) {
+            if (evidence.get(order[t]) == FactState.PRESENT) { present[p++] = order[t]; } else { absent[q++] = order[t]; }
+        }
+        return new int[][]{present, absent};
+    }
+
+    /**
+     * Observed facts (present or absent), the most discriminating first:
+     * by the spread of the contribution across hypotheses, equal spreads by index. <br>
+     * The order is only a heuristic (any order gives a sound bound), so the spread is rounded to a float
+     * and packed with the fact into one {@code long}: {@code (FLOAT_INFINITY_BITS - bits of spread) << 32 | fact}.
+     * For a non-negative float the bits grow with the value, so a primitive sort of the keys is exactly
+     * «the widest spread first, then the smallest index» — without boxing and a comparator per query.
+     */
+    private static int[] discriminatingOrder(LogSpaceEngine engine, Evidence evidence) {
+        int[] present = evidence.indicesOf(FactState.PRESENT);
+        int[] absent = evidence.indicesOf(FactState.ABSENT);
+
+        int observed = present.length + absent.length;
+        long[] keys = new long[observed];
+        for (int t = 0; t < observed; ++t) {
+            int fact = t < present.length ? present[t] : absent[t - present.length];
+            FactState state = t < present.length ? FactState.PRESENT : FactState.ABSENT;
+            double spread = engine.maxContribution(fact, state) - engine.minContribution(fact, state);
+            // NaN (-Infinity minus -Infinity) is taken as no spread at all.
+            float rounded = spread > 0 ? (float) spread : 0.0f;
+            keys[t] = ((long) (FLOAT_INFINITY_BITS - Float.floatToIntBits(rounded)) << 32) | fact;
+        }
+        Arrays.sort(keys);
+
+        int[] order = new int[observed];
+        for (int t = 0; t < observed; ++t) { order[t] = (int) keys[t]; }
+        return order;
+    }
+}
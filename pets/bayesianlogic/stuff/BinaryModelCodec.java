@@ -0,0 +1,217 @@
+package pets.bayesianlogic.stuff;
+
+import pets.bayesianlogic.except.IncorrectFileValuesException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writer and reader of the compact binary model format (version 1). <br>
+ * Layout of the file (little-endian):
+ * <pre>
+ *  magic "BAYM" (4 bytes) | version (int) | hyposCount (int) | factsCount (int) | labelsLength (int)
+ *  labels: thesis, hypotheses..., facts... — every one as (int byteLength, UTF-8 bytes), thesis -1 = null
+ *  zero padding up to a multiple of 8 bytes
+ *  priors: double[hyposCount]
+ *  table:  double[hyposCount * factsCount], row-major P(F_j | H_i)
+ * </pre>
+ * The reader memory-maps the file and takes the doubles with bulk copies straight from the mapping
+ * (no parsing of text at all).
+ * @author Kolesnikov Stephan
+ */
+final class BinaryModelCodec {
+
+    /**
+     * Magic bytes at the start of the file.
+     */
+    private static final int MAGIC = ('B') | ('A' << 8) | ('Y' << 16) | ('M' << 24);
+
+    /**
+     * Current version of the format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Size of the fixed header, in bytes.
+     */
+    private static final int HEADER_SIZE = 20;
+
+    /**
+     * Maximum amount of doubles mapped (or written) at once.
+     */
+    private static final int CHUNK_DOUBLES = 1 << 26;
+
+    private BinaryModelCodec() {}
+
+    /**
+     * Content of a binary file.
+     * @param thesis main thesis (may be null).
+     * @param hypotheses list of hypotheses.
+     * @param facts list of facts.
+     * @param model table with chances.
+     */
+    record Decoded(String thesis, List<String> hypotheses, List<String> facts, ProbabilityModel model) {}
+
+    /**
+     * Writes the model into the file (the file is created or replaced).
+     * @throws IOException writing failure.
+     */
+    static void write(Path path, String thesis, List<String> hypotheses, List<String> facts,
+                      ProbabilityModel model) throws IOException {
+        ByteBuffer labels = encodeLabels(thesis, hypotheses, facts);
+        int labelsLength = labels.remaining();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + labelsLength + padding(HEADER_SIZE + labelsLength))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION)
+                .putInt(model.getHyposCount()).putInt(model.getFactsCount()).putInt(labelsLength)
+                .put(labels);
+        header.position(header.capacity()).flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header);
+            writeDoubles(channel, model.priors());
+            writeDoubles(channel, model.cells());
+        }
+    }
+
+    /**
+     * Reads the model from the memory-mapped file.
+     * @throws IncorrectFileValuesException the file is not a model of a supported version, or it is damaged.
+     * @throws IOException reading failure.
+     */
+    static Decoded read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IncorrectFileValuesException("The file is too short for a binary model.");
+            }
+
+            MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            head.order(ByteOrder.LITTLE_ENDIAN);
+            if (head.getInt() != MAGIC) {
+                throw new IncorrectFileValuesException("The file is not a binary model (no «BAYM» mark).");
+            }
+            int version = head.getInt();
+            if (version != VERSION) {
+                throw new IncorrectFileValuesException("Unsupported version of the binary model: " + version);
+            }
+            int hyposCount = head.getInt(), factsCount = head.getInt(), labelsLength = head.getInt();
+
+            long dataOffset = HEADER_SIZE + (long) labelsLength + padding(HEADER_SIZE + labelsLength);
+            long expectedSize = dataOffset + 8L * (hyposCount + (long) hyposCount * factsCount);
+            if (hyposCount <= 0 || factsCount <= 0 || labelsLength < 0 || expectedSize != fileSize) {
+                throw new IncorrectFileValuesException("The binary model is damaged: header ("
+                        + hyposCount + " x " + factsCount + ") does not match the file size " + fileSize + ".");
+            }
+
+            MappedByteBuffer labels = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, labelsLength);
+            labels.order(ByteOrder.LITTLE_ENDIAN);
+            String thesis = readLabel(labels);
+            List<String> hypotheses = readLabels(labels, hyposCount);
+            List<String> facts = readLabels(labels, factsCount);
+
+            ProbabilityModel model = new ProbabilityModel(hyposCount, factsCount);
+            readDoubles(channel, dataOffset, model.priors());
+            readDoubles(channel, dataOffset + 8L * hyposCount, model.cellsForWrite());
+
+            return new Decoded(thesis, hypotheses, facts, model);
+        }
+    }
+
+    private static ByteBuffer encodeLabels(String thesis, List<String> hypotheses, List<String> facts) {
+        List<byte[]> encoded = new ArrayList<>(1 + hypotheses.size() + facts.size());
+        encoded.add(thesis == null ? null : thesis.getBytes(StandardCharsets.UTF_8));
+        for (String hypo : hypotheses) { encoded.add(hypo.getBytes(StandardCharsets.UTF_8)); }
+        for (String fact : facts) { encoded.add(fact.getBytes(StandardCharsets.UTF_8)); }
+
+        int length = 0;
+        for (byte[] bytes : encoded) { length += 4 + (bytes == null ? 0 : bytes.length); }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        for (byte[] bytes : encoded) {
+            if (bytes == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(bytes.length).put(bytes);
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static String readLabel(ByteBuffer labels) throws IncorrectFileValuesException {
+        if (labels.remaining() < 4) {
+            throw new IncorrectFileValuesException("The binary model is damaged: labels are cut off.");
+        }
+        int length = labels.getInt();
+        if (length == -1) { return null; }
+        if (length < 0 || length > labels.remaining()) {
+            throw new IncorrectFileValuesException("The binary model is damaged: label length " + length + ".");
+        }
+
+        byte[] bytes = new byte[length];
+        labels.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> readLabels(ByteBuffer labels, int count) throws IncorrectFileValuesException {
+        List<String> list = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            String label = readLabel(labels);
+            if (label == null) {
+                throw new IncorrectFileValuesException("The binary model is damaged: label #" + (i + 1) + " is null.");
+            }
+            list.add(label);
+        }
+        return list;
+    }
+
+    /**
+     * Bulk copy of doubles from the mapping, window by window.
+     */
+    private static void readDoubles(FileChannel channel, long offset, double[] target) throws IOException {
+        for (int done = 0; done < target.length; ) {
+            int count = Math.min(CHUNK_DOUBLES, target.length - done);
+            DoubleBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset + 8L * done, 8L * count)
+                    .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            window.get(target, done, count);
+            done += count;
+        }
+    }
+
+    private static void writeDoubles(FileChannel channel, double[] source) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(8 * Math.min(CHUNK_DOUBLES >> 6, Math.max(1, source.length)))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        int perChunk = buffer.capacity() / 8;
+
+        for (int done = 0; done < source.length; ) {
+            int count = Math.min(perChunk, source.length - done);
+            buffer.clear();
+            buffer.asDoubleBuffer().put(source, done, count);
+            buffer.limit(8 * count);
+            writeFully(channel, buffer);
+            done += count;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) { channel.write(buffer); }
+    }
+
+    /**
+     * @return amount of zero bytes that aligns the position to 8.
+     */
+    private static int padding(long position) {
+        return (int) ((8 - position % 8) % 8);
+    }
+}
@@ -0,0 +1,209 @@
+package pets.bayesianlogic.stuff;
+
+import pets.bayesianlogic.except.CrashException;
+
+import java.util.List;
+
+/**
+ * Immutable snapshot of a model, produced by {@code BayesianBody.compile()}. <br>
+ * Holds the frozen labels (thesis, hypotheses, facts), the prior chances, the table and the
+ * precomputed log-space engine. Nothing in the object can be changed after construction,
+ * all fields are final, and every query creates its own arrays, so any number of threads
+ * may run inference on ONE instance concurrently, without locks. <br>
+ * Unlike {@link BayesianBody}, it has no parsing state and no logger.
+ * @author Kolesnikov Stephan
+ */
+public final class CompiledBayesianModel {
+
+    /**
+     * Frozen main thesis.
+     */
+    private final String thesis;
+
+    /**
+     * Frozen list of hypotheses (unmodifiable).
+     */
+    private final List<String> hypotheses;
+
+    /**
+     * Frozen list of facts (unmodifiable).
+     */
+    private final List<String> facts;
+
+    /**
+     * Private copy of the table and chances (never leaves the object).
+     */
+    private final ProbabilityTable table;
+
+    /**
+     * Engine with the precomputed logarithms.
+     */
+    private final LogSpaceEngine engine;
+
+    /**
+     * @param thesis main thesis.
+     * @param hypotheses hypotheses (copied).
+     * @param facts facts (copied).
+     * @param table private copy of the complete table with chances (NOT copied once more).
+     * @param engine engine built from the same table.
+     */
+    CompiledBayesianModel(String thesis, List<String> hypotheses, List<String> facts,
+                          ProbabilityTable table, LogSpaceEngine engine) {
+        if (hypotheses.size() != table.getHyposCount() || facts.size() != table.getFactsCount()) {
+            throw new CrashException("Labels (" + hypotheses.size() + " x " + facts.size()
+                    + ") do not match the table (" + table.getHyposCount() + " x " + table.getFactsCount() + ").");
+        }
+        this.thesis = thesis;
+        this.hypotheses = List.copyOf(hypotheses);
+        this.facts = List.copyOf(facts);
+        this.table = table;
+        this.engine = engine;
+    }
+
+    /**
+     * Getter of main thesis.
+     */
+    public String getThesis() {
+        return this.thesis;
+    }
+
+    /**
+     * Getter of the unmodifiable list of hypotheses.
+     */
+    public List<String> getHypotheses() {
+        return this.hypotheses;
+    }
+
+    /**
+     * Getter of the unmodifiable list of facts.
+     */
+    public List<String> getFacts() {
+        return this.facts;
+    }
+
+    /**
+     * Getter of hypotheses count value.
+     */
+    public int getHyposCount() {
+        return this.hypotheses.size();
+    }
+
+    /**
+     * Getter of facts count value.
+     */
+    public int getFactsCount() {
+        return this.facts.size();
+    }
+
+    /**
+     * @param hypo zero-based hypothesis index.
+     * @return prior chance P(H_hypo).
+     */
+    public double getPrior(int hypo) {
+        return this.table.getPrior(hypo);
+    }
+
+    /**
+     * @param hypo zero-based hypothesis index.
+     * @param fact zero-based fact index.
+     * @return P(F_fact | H_hypo).
+     */
+    public double getProbability(int hypo, int fact) {
+        return this.table.get(hypo, fact);
+    }
+
+    /**
+     * @return copy of the table in the format [hypothesis][fact].
+     */
+    public double[][] getDeepClonedProbabilityTable() {
+        return this.table.toNestedArray();
+    }
+
+    /**
+     * Posteriors with ALL facts observed (the same as {@code BayesianBody.getPosteriorArray()}).
+     * @throws CrashException every hypothesis is impossible.
+     */
+    public double[] posteriors() throws CrashException {
+        return this.engine.posteriors();
+    }
+
+    /**
+     * Posteriors for an evidence vector.
+     * @throws CrashException the evidence does not match the facts, or every hypothesis is impossible.
+     */
+    public double[] posteriors(Evidence evidence) throws CrashException {
+        return this.engine.posteriors(evidence);
+    }
+
+    /**
+     * Result with ALL facts observed, ready for any renderer.
+     * @throws CrashException every hypothesis is impossible.
+     */
+    public InferenceResult infer() throws CrashException {
+        return new InferenceResult(this.thesis, this.hypotheses, this.facts, null, this.engine.posteriors());
+    }
+
+    /**
+     * Result for an evidence vector, ready for any renderer.
+     * @throws CrashException the evidence does not match the facts, or every hypothesis is impossible.
+     */
+    public InferenceResult infer(Evidence evidence) throws CrashException {
+        return new InferenceResult(this.thesis, this.hypotheses, this.facts, evidence,
+                this.engine.posteriors(evidence));
+    }
+
+    /**
+     * The k most probable hypotheses with their exact posteriors, without the array of all posteriors
+     * (see {@code LogSpaceEngine.topK(int, Evidence)}); the names are {@code getHypotheses().get(index)}.
+     * @throws CrashException k is not positive, the evidence does not match the facts,
+     *                        or every hypothesis is impossible.
+     */
+    public List<RankedHypothesis> topK(int k, Evidence evidence) throws CrashException {
+        return this.engine.topK(k, evidence);
+    }
+
+    /**
+     * Pruned inference: hopeless hypotheses are dropped while the facts are added
+     * (see {@code LogSpaceEngine.prunedPosteriors(Evidence, double)}).
+     * @throws CrashException the margin is not positive, the evidence does not match the facts,
+     *                        or every hypothesis is impossible.
+     */
+    public PrunedPosteriors prunedPosteriors(Evidence evidence, double logRatio) throws CrashException {
+        return this.engine.prunedPosteriors(evidence, logRatio);
+    }
+
+    /**
+     * Posterior matrix {@code [case][hypothesis]} for a batch of evidence vectors (spread across the cores).
+     * @throws CrashException some evidence does not match the facts, or makes every hypothesis impossible.
+     */
+    public double[][] posteriorBatch(List<Evidence> batch) throws CrashException {
+        return this.engine.posteriorBatch(batch);
+    }
+
+    /**
+     * Creates an updatable posterior without observations.
+     * The state itself is NOT thread-safe: one state per session/thread.
+     */
+    public PosteriorState newPosteriorState() {
+        return this.engine.newPosteriorState();
+    }
+
+    /**
+     * Approximate memory footprint of the snapshot (table, chances, logarithms and labels), in bytes.
+     */
+    public long estimatedBytes() {
+        // The engine keeps log P and log(1 - P) of every cell: about twice the memory of the table.
+        long bytes = 3 * this.table.estimatedBytes();
+        for (String hypo : this.hypotheses) { bytes += 48 + 2L * hypo.length(); }
+        for (String fact : this.facts) { bytes += 48 + 2L * fact.length(); }
+        return bytes + (this.thesis == null ? 0 : 48 + 2L * this.thesis.length());
+    }
+
+    @Override
+    public String toString() {
+        return "class: CompiledBayesianModel[mainThesis: `" + this.thesis
+                + "`, countOfHypotheses: " + getHyposCount()
+                + ", countOfFacts: " + getFactsCount()
+                + ", kernel: " + this.engine.getKernel().name() + "]";
+    }
+}
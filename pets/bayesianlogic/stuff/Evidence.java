@@ -0,0 +1,170 @@
+package pets.bayesianlogic.stuff;
+
+import pets.bayesianlogic.except.CrashException;
+
+import java.util.Arrays;
+
+/**
+ * Immutable evidence vector: the state of every fact of a model (present, absent or unknown). <br>
+ * The string form has one symbol per fact, for example {@code "+-?+"}
+ * (see {@link FactState#getSymbol()}).
+ * @author Kolesnikov Stephan
+ */
+public final class Evidence {
+
+    /**
+     * Cached array of states (values() creates a new array on every call).
+     */
+    private static final FactState[] STATES = FactState.values();
+
+    /**
+     * Ordinals of {@link FactState} per fact.
+     */
+    private final byte[] states;
+
+    private Evidence(byte[] states) {
+        this.states = states;
+    }
+
+    /**
+     * Evidence where every fact is observed (the classic query of {@code BayesianBody}).
+     * @param factsCount number of facts.
+     */
+    public static Evidence allPresent(int factsCount) {
+        byte[] states = new byte[factsCount];
+        Arrays.fill(states, (byte) FactState.PRESENT.ordinal());
+        return new Evidence(states);
+    }
+
+    /**
+     * Evidence where nothing is known (posteriors are equal to the prior chances).
+     * @param factsCount number of facts.
+     */
+    public static Evidence allUnknown(int factsCount) {
+        byte[] states = new byte[factsCount];
+        Arrays.fill(states, (byte) FactState.UNKNOWN.ordinal());
+        return new Evidence(states);
+    }
+
+    /**
+     * @param states state of every fact in the order of the model.
+     * @return new evidence.
+     */
+    public static Evidence of(FactState... states) {
+        byte[] ordinals = new byte[states.length];
+        for (int i = 0; i < states.length; ++i) {
+            if (states[i] == null) { throw new CrashException("State of fact #" + (i + 1) + " is null."); }
+            ordinals[i] = (byte) states[i].ordinal();
+        }
+        return new Evidence(ordinals);
+    }
+
+    /**
+     * Parsing of the string form ({@code +} present, {@code -} absent, {@code ?} unknown).
+     * @param line string with one symbol per fact.
+     * @return new evidence.
+     * @throws CrashException unknown symbol.
+     */
+    public static Evidence parse(CharSequence line) throws CrashException {
+        byte[] ordinals = new byte[line.length()];
+        for (int i = 0; i < ordinals.length; ++i) {
+            FactState state = FactState.bySymbol(line.charAt(i));
+            if (state == null) {
+                throw new CrashException("Unknown symbol `" + line.charAt(i) + "` of evidence at position "
+                        + (i + 1) + " (allowed: +, -, ?).");
+            }
+            ordinals[i] = (byte) state.ordinal();
+        }
+        return new Evidence(ordinals);
+    }
+
+    /**
+     * Copy of the evidence with one changed fact.
+     * @param fact zero-based fact index.
+     * @param state new state.
+     */
+    public Evidence with(int fact, FactState state) {
+        byte[] copied = this.states.clone();
+        copied[fact] = (byte) state.ordinal();
+        return new Evidence(copied);
+    }
+
+    /**
+     * @return number of facts in the evidence.
+     */
+    public int size() {
+        return this.states.length;
+    }
+
+    /**
+     * @param fact zero-based fact index.
+     * @return state of the fact.
+     */
+    public FactState get(int fact) {
+        return STATES[this.states[fact]];
+    }
+
+    /**
+     * @return true, if every fact is present.
+     */
+    public boolean isAllPresent() {
+        for (byte state : this.states) {
+            if (state != FactState.PRESENT.ordinal()) { return false; }
+        }
+        return true;
+    }
+
+    /**
+     * @param state required state.
+     * @return amount of the facts with the given state.
+     */
+    int countOf(FactState state) {
+        int count = 0;
+        for (byte current : this.states) {
+            if (current == state.ordinal()) { count++; }
+        }
+        return count;
+    }
+
+    /**
+     * Indices of the facts with the given state (for the loops of inference).
+     * @param state required state.
+     * @return ascending zero-based indices.
+     */
+    int[] indicesOf(FactState state) {
+        int count = 0;
+        for (byte current : this.states) {
+            if (current == state.ordinal()) { count++; }
+        }
+
+        int[] indices = new int[count];
+        for (int i = 0, k = 0; i < this.states.length; ++i) {
+            if (this.states[i] == state.ordinal()) { indices[k++] = i; }
+        }
+        return indices;
+    }
+
+    @Override
+    public boolean equals(Object otherObject) {
+        if (this == otherObject) { return true; }
+        if (!(otherObject instanceof Evidence other)) { return false; }
+        return Arrays.equals(this.states, other.states);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.states);
+    }
+
+    /**
+     * @return string form, for example {@code "+-?+"}.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(this.states.length);
+        for (byte state : this.states) {
+            sb.append(STATES[state].getSymbol());
+        }
+        return sb.toString();
+    }
+}
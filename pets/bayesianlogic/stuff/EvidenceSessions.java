@@ -0,0 +1,355 @@
+package pets.bayesianlogic.stuff;
+
+import pets.bayesianlogic.except.CrashException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sessions of streaming evidence on top of one compiled model. <br>
+ * Every session keeps its running posterior ({@link PosteriorState}: primitive arrays of scores and fact states)
+ * and a small primitive buffer of observations that have not been applied yet. {@code observe(...)} only puts
+ * the observation into the buffer, the buffer is drained by a task on a virtual thread
+ * (one task per session at a time, so the observations of a session are applied in their order,
+ * while different sessions are processed concurrently). A drained batch costs O(H) per observation
+ * and one recomputation of the normalizer; it is applied OUTSIDE the lock of the session
+ * (the buffer is swapped out under it), so {@code observe(...)} never waits for a batch. <br>
+ * There are no threads per session: an idle session is just its arrays, so one JVM can hold
+ * hundreds of thousands of them. The object is thread-safe.
+ * @author Kolesnikov Stephan
+ */
+public final class EvidenceSessions implements AutoCloseable {
+
+    /**
+     * Cached array of states (values() creates a new array on every call).
+     */
+    private static final FactState[] STATES = FactState.values();
+
+    /**
+     * Model of all sessions (immutable, shared).
+     */
+    private final CompiledBayesianModel model;
+
+    /**
+     * Executor of the draining tasks.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Flag of the executor created by this object (it is closed together with the sessions).
+     */
+    private final boolean ownExecutor;
+
+    /**
+     * Open sessions by their identifiers.
+     */
+    private final ConcurrentHashMap<Long, Session> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Source of the identifiers.
+     */
+    private final AtomicLong nextId = new AtomicLong();
+
+    /**
+     * Amount of applied observations (all sessions).
+     */
+    private final LongAdder processed = new LongAdder();
+
+    /**
+     * Flag of the closed object (new sessions and observations are refused).
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * One session: the posterior and the buffer of observations, guarded by the session itself
+     * (the critical sections are short and never block, so a virtual thread is not held long). <br>
+     * The posterior is changed only by the draining task, and only one task of a session runs at a time
+     * (while {@code scheduled} is set), so the task works on it without the lock.
+     */
+    private static final class Session {
+
+        private final PosteriorState state;
+
+        /**
+         * Observations not applied yet: {@code fact << 2 | state ordinal} (allocated on the first observation).
+         * A long, because the index of a fact of a big sparse model may take all 31 bits.
+         */
+        private long[] pending = null;
+        private int pendingCount = 0;
+
+        /**
+         * The second buffer: the drained batch is given back here, and becomes {@code pending} at the next swap.
+         */
+        private long[] spare = null;
+
+        /**
+         * Flag of a draining task already submitted for the session.
+         */
+        private boolean scheduled = false;
+
+        /**
+         * Readers waiting for the posteriors after the buffered observations (created on demand).
+         */
+        private List<CompletableFuture<double[]>> waiting = null;
+
+        private Session(PosteriorState state) {
+            this.state = state;
+        }
+    }
+
+    /**
+     * The constructor creates the sessions with their own executor (a new virtual thread per draining task).
+     * @param model compiled model of all sessions.
+     */
+    public EvidenceSessions(CompiledBayesianModel model) {
+        this(model, Executors.newVirtualThreadPerTaskExecutor(), true);
+    }
+
+    /**
+     * The constructor creates the sessions with a given executor (it is NOT closed by {@code close()}).
+     * @param model compiled model of all sessions.
+     * @param executor executor of the draining tasks.
+     */
+    public EvidenceSessions(CompiledBayesianModel model, ExecutorService executor) {
+        this(model, executor, false);
+    }
+
+    private EvidenceSessions(CompiledBayesianModel model, ExecutorService executor, boolean ownExecutor) {
+        if (model == null || executor == null) {
+            throw new CrashException("The model and the executor of sessions must not be null.");
+        }
+        this.model = model;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+    }
+
+    /**
+     * Opens a new session without observations (its posteriors are the prior chances).
+     * @return identifier of the session.
+     * @throws CrashException the sessions are closed.
+     */
+    public long open() throws CrashException {
+        checkOpen();
+        long id = this.nextId.incrementAndGet();
+        this.sessions.put(id, new Session(this.model.newPosteriorState()));
+        return id;
+    }
+
+    /**
+     * Puts an observation of a fact into the session; it is applied asynchronously, in the order of the calls.
+     * @param session identifier of the session.
+     * @param fact zero-based fact index.
+     * @param state new state of the fact ({@code UNKNOWN} retracts it).
+     * @throws CrashException unknown session, invalid fact, or the sessions are closed.
+     */
+    public void observe(long session, int fact, FactState state) throws CrashException {
+        checkOpen();
+        if (fact < 0 || fact >= this.model.getFactsCount() || state == null) {
+            throw new CrashException("Invalid observation: fact " + fact + " (" + state + "), the model has "
+                    + this.model.getFactsCount() + " facts.");
+        }
+
+        Session current = session(session);
+        boolean schedule;
+        synchronized (current) {
+            if (current.pending == null) {
+                current.pending = new long[4];
+            } else if (current.pendingCount == current.pending.length) {
+                current.pending = Arrays.copyOf(current.pending, current.pendingCount * 2);
+            }
+            current.pending[current.pendingCount++] = (long) fact << 2 | state.ordinal();
+
+            schedule = !current.scheduled;
+            current.scheduled = true;
+        }
+        if (!schedule) { return; }
+
+        try {
+            this.executor.execute(() -> drain(current));
+        } catch (RejectedExecutionException e) {
+            // The executor is shut down (also by close() after checkOpen()): nothing will drain the session.
+            rejected(current, e);
+        }
+    }
+
+    /**
+     * Retraction of a fact: it becomes unknown again (asynchronously, as {@code observe(...)}).
+     * @throws CrashException unknown session, invalid fact, or the sessions are closed.
+     */
+    public void retract(long session, int fact) throws CrashException {
+        observe(session, fact, FactState.UNKNOWN);
+    }
+
+    /**
+     * Posteriors of the session after ALL observations given before the call.
+     * @param session identifier of the session.
+     * @return future with the posteriors (completed at once, if nothing is buffered;
+     *         completed exceptionally with {@link CrashException}, if every hypothesis is impossible).
+     * @throws CrashException unknown session.
+     */
+    public CompletableFuture<double[]> posteriors(long session) throws CrashException {
+        Session current = session(session);
+        synchronized (current) {
+            if (!current.scheduled) {
+                return completed(current.state);
+            }
+            CompletableFuture<double[]> future = new CompletableFuture<>();
+            if (current.waiting == null) { current.waiting = new ArrayList<>(2); }
+            current.waiting.add(future);
+            return future;
+        }
+    }
+
+    /**
+     * Closes one session (its buffered observations are dropped).
+     * @return true, if the session was open.
+     */
+    public boolean close(long session) {
+        return this.sessions.remove(session) != null;
+    }
+
+    /**
+     * Getter of the amount of open sessions.
+     */
+    public int getSessionCount() {
+        return this.sessions.size();
+    }
+
+    /**
+     * Getter of the amount of observations applied in all sessions.
+     */
+    public long getProcessedCount() {
+        return this.processed.sum();
+    }
+
+    /**
+     * Getter of the model of the sessions.
+     */
+    public CompiledBayesianModel getModel() {
+        return this.model;
+    }
+
+    /**
+     * Refuses new sessions and observations, waits for the submitted draining tasks (if the executor is own)
+     * and forgets all sessions.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        if (this.ownExecutor) { this.executor.close(); }
+        this.sessions.clear();
+    }
+
+    /**
+     * Task of a virtual thread: swaps out the buffered observations of the session under its lock,
+     * applies them without the lock, and repeats while new observations arrive; then answers the readers,
+     * who waited for the applied observations. The task ends (and clears {@code scheduled})
+     * only when neither observations nor readers are left.
+     */
+    private void drain(Session current) {
+        while (true) {
+            long[] batch;
+            int count;
+            List<CompletableFuture<double[]>> readers;
+            synchronized (current) {
+                if (current.pendingCount == 0 && current.waiting == null) {
+                    current.scheduled = false;
+                    return;
+                }
+                batch = current.pending;
+                count = current.pendingCount;
+                current.pending = current.spare;
+                current.spare = null;
+                current.pendingCount = 0;
+
+                // The readers wait for the observations given before them, that is, for this batch at most.
+                readers = current.waiting;
+                current.waiting = null;
+            }
+
+            for (int k = 0; k < count; ++k) {
+                long observation = batch[k];
+                current.state.change((int) (observation >>> 2), STATES[(int) (observation & 3)]);
+            }
+            if (count > 0) {
+                this.processed.add(count);
+                current.state.normalize();
+            }
+            if (readers != null) { answer(readers, current.state); }
+
+            synchronized (current) {
+                if (current.spare == null) { current.spare = batch; }
+            }
+        }
+    }
+
+    /**
+     * The executor refused the draining task: nothing will drain the session, so its buffer (the observation
+     * that scheduled the task, and the ones that came meanwhile) is dropped, the waiting readers fail,
+     * and the caller gets the exception.
+     * @throws CrashException always.
+     */
+    private void rejected(Session current, RejectedExecutionException cause) throws CrashException {
+        List<CompletableFuture<double[]>> readers;
+        synchronized (current) {
+            current.pendingCount = 0;
+            current.scheduled = false;
+            readers = current.waiting;
+            current.waiting = null;
+        }
+
+        CrashException e = new CrashException("The observation was refused: the executor of sessions is shut down.");
+        e.initCause(cause);
+        if (readers != null) {
+            for (CompletableFuture<double[]> reader : readers) { reader.completeExceptionally(e); }
+        }
+        throw e;
+    }
+
+    /**
+     * Answers the readers with the current posteriors (outside the lock: their callbacks may run in this thread).
+     */
+    private static void answer(List<CompletableFuture<double[]>> readers, PosteriorState state) {
+        double[] posteriors;
+        try {
+            posteriors = state.posteriors();
+        } catch (CrashException e) {
+            for (CompletableFuture<double[]> reader : readers) { reader.completeExceptionally(e); }
+            return;
+        }
+        for (CompletableFuture<double[]> reader : readers) { reader.complete(posteriors.clone()); }
+    }
+
+    /**
+     * Current posteriors of the state as a completed future (called under the lock of the session).
+     */
+    private static CompletableFuture<double[]> completed(PosteriorState state) {
+        try {
+            return CompletableFuture.completedFuture(state.posteriors());
+        } catch (CrashException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Session session(long session) throws CrashException {
+        Session current = this.sessions.get(session);
+        if (current == null) {
+            throw new CrashException("Unknown (or closed) session: " + session);
+        }
+        return current;
+    }
+
+    private void checkOpen() throws CrashException {
+        if (this.closed) {
+            throw new CrashException("The sessions are closed.");
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package pets.bayesianlogic.stuff;
+
+/**
+ * State of one fact in an evidence vector.
+ * @author Kolesnikov Stephan
+ */
+public enum FactState {
+    /**
+     * The fact was observed: the hypothesis is multiplied by P(F | H).
+     */
+    PRESENT('+'),
+
+    /**
+     * The fact was observed absent: the hypothesis is multiplied by 1 - P(F | H).
+     */
+    ABSENT('-'),
+
+    /**
+     * Nothing is known about the fact: it does not take part in the calculation.
+     */
+    UNKNOWN('?');
+
+    /**
+     * Symbol of the state in the string form of evidence.
+     */
+    private final char symbol;
+
+    FactState(char symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * Getter of the symbol ({@code +}, {@code -} or {@code ?}).
+     */
+    public char getSymbol() {
+        return this.symbol;
+    }
+
+    /**
+     * Search of the state by its symbol.
+     * @param symbol {@code +}, {@code -} or {@code ?}.
+     * @return state or <code>null</code>, if the symbol is unknown.
+     */
+    public static FactState bySymbol(char symbol) {
+        for (FactState state : values()) {
+            if (state.symbol == symbol) { return state; }
+        }
+        return null;
+    }
+}
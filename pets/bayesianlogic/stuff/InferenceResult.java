@@ -0,0 +1,130 @@
+package pets.bayesianlogic.stuff;
+
+import java.util.List;
+
+/**
+ * Result of ONE inference: the labels of the model and the posterior probabilities of hypotheses. <br>
+ * The result is computed once and may be rendered any number of times, by any renderer
+ * (see {@code pets.bayesianlogic.render.ResultRenderer}); nothing is recomputed while rendering.
+ * The object is immutable.
+ * @author Kolesnikov Stephan
+ */
+public final class InferenceResult {
+
+    /**
+     * Main thesis (may be null).
+     */
+    private final String thesis;
+
+    /**
+     * Hypotheses (unmodifiable).
+     */
+    private final List<String> hypotheses;
+
+    /**
+     * Facts (unmodifiable).
+     */
+    private final List<String> facts;
+
+    /**
+     * Evidence of the inference (<code>null</code> means: all facts are observed).
+     */
+    private final Evidence evidence;
+
+    /**
+     * Posterior probabilities in the order of hypotheses.
+     */
+    private final double[] posteriors;
+
+    /**
+     * The longest hypothesis (or the thesis, if there are no hypotheses), found once for the renderers.
+     */
+    private final String longestHypothesis;
+
+    /**
+     * @param thesis main thesis (may be null).
+     * @param hypotheses hypotheses (copied).
+     * @param facts facts (copied).
+     * @param evidence evidence of the inference (<code>null</code>, if all facts are observed).
+     * @param posteriors posterior probabilities (NOT copied, the caller gives away its array).
+     */
+    public InferenceResult(String thesis, List<String> hypotheses, List<String> facts,
+                           Evidence evidence, double[] posteriors) {
+        this.thesis = thesis;
+        this.hypotheses = List.copyOf(hypotheses);
+        this.facts = List.copyOf(facts);
+        this.evidence = evidence;
+        this.posteriors = posteriors;
+
+        String longest = this.hypotheses.isEmpty() ? thesis : this.hypotheses.getFirst();
+        for (String hypo : this.hypotheses) {
+            if (hypo.length() > longest.length()) { longest = hypo; }
+        }
+        this.longestHypothesis = longest;
+    }
+
+    /**
+     * Getter of main thesis.
+     */
+    public String getThesis() {
+        return this.thesis;
+    }
+
+    /**
+     * Getter of the unmodifiable list of hypotheses.
+     */
+    public List<String> getHypotheses() {
+        return this.hypotheses;
+    }
+
+    /**
+     * Getter of the unmodifiable list of facts.
+     */
+    public List<String> getFacts() {
+        return this.facts;
+    }
+
+    /**
+     * Getter of the evidence (<code>null</code> means: all facts are observed).
+     */
+    public Evidence getEvidence() {
+        return this.evidence;
+    }
+
+    /**
+     * @return amount of posteriors (the same as the amount of hypotheses).
+     */
+    public int size() {
+        return this.posteriors.length;
+    }
+
+    /**
+     * @param hypo zero-based hypothesis index.
+     * @return posterior probability of the hypothesis.
+     */
+    public double getPosterior(int hypo) {
+        return this.posteriors[hypo];
+    }
+
+    /**
+     * @param hypo zero-based hypothesis index.
+     * @return posterior probability rounded to whole percents (as in the box output).
+     */
+    public int getPercent(int hypo) {
+        return (int) Math.round(this.posteriors[hypo] * 100);
+    }
+
+    /**
+     * @return copy of the posterior probabilities.
+     */
+    public double[] getPosteriors() {
+        return this.posteriors.clone();
+    }
+
+    /**
+     * @return the longest hypothesis (or the thesis, if there are no hypotheses; may be null).
+     */
+    public String getLongestHypothesis() {
+        return this.longestHypothesis;
+    }
+}
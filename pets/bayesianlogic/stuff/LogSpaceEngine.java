@@ -0,0 +1,581 @@
+package pets.bayesianlogic.stuff;
+
+import pets.bayesianlogic.except.CrashException;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Inference engine that works in the log-domain instead of multiplying probabilities. <br>
+ * With a few hundred facts the product P(H) * П P(F|H) underflows to zero in linear space
+ * (and the normalization becomes a division by zero), while the sum of logarithms stays finite.
+ * The logarithms are precomputed ONCE per model, every query only adds them up per hypothesis
+ * and normalizes the scores with the log-sum-exp trick. <br>
+ * Next to every log P(F|H) the engine keeps log(1 - P(F|H)), so a fact observed ABSENT costs the same
+ * as a present one: one lookup and one addition, no {@code Math.log} or {@code Math.exp} per query. <br>
+ * The sums across facts are done by an {@link InferenceKernel} (SIMD, if the Vector API is available). <br>
+ * For a sparse table ({@link SparseProbabilityModel}) the engine keeps the logarithms of the defaults and of
+ * the explicit cells only (CSR layout): a query counts the default contribution of a hypothesis once
+ * (as {@code count * log(default)}) and corrects it for the explicit cells, so it costs O(F + explicit cells),
+ * not O(H x F). <br>
+ * The object is immutable: all arrays are created in the constructor (also the bounds of every fact
+ * across hypotheses, which order and prune the facts in {@code prunedPosteriors(Evidence, double)}).
+ * @author Kolesnikov Stephan
+ */
+public final class LogSpaceEngine {
+
+    /**
+     * Kernel, which is used by default (chosen once per JVM).
+     */
+    private static final InferenceKernel DEFAULT_KERNEL = InferenceKernel.preferred();
+
+    /**
+     * Number of hypotheses (rows of the table).
+     */
+    private final int hyposCount;
+
+    /**
+     * Number of facts (columns of the table).
+     */
+    private final int factsCount;
+
+    /**
+     * Logarithms of the prior chances of hypotheses: log P(H_i).
+     */
+    private final double[] logPriors;
+
+    /**
+     * Logarithms of the table in one row-major array: log P(F_j | H_i) at {@code [i * factsCount + j]}
+     * (<code>null</code> for a sparse table).
+     */
+    private final double[] logTable;
+
+    /**
+     * Logarithms of the complements in the same layout: log(1 - P(F_j | H_i)) at {@code [i * factsCount + j]}
+     * (<code>null</code> for a sparse table).
+     */
+    private final double[] logTable1m;
+
+    /**
+     * Sparse table: explicit cells of hypothesis i are {@code [rowStart[i]; rowStart[i + 1])}
+     * (all sparse arrays are <code>null</code> for a dense table).
+     */
+    private final int[] rowStart;
+
+    /**
+     * Sparse table: facts of the explicit cells (ascending in every row).
+     */
+    private final int[] explicitFacts;
+
+    /**
+     * Sparse table: log P and log(1 - P) of the explicit cells.
+     */
+    private final double[] explicitLog;
+    private final double[] explicitLog1m;
+
+    /**
+     * Sparse table: log and log(1 - x) of the defaults of hypotheses.
+     */
+    private final double[] defaultLog;
+    private final double[] defaultLog1m;
+
+    /**
+     * Bounds of log P(F_j | H) across all hypotheses: the largest and the smallest logarithm of every fact
+     * (for the pruned inference, see {@link BeamPruner}; for a sparse table the defaults of all hypotheses
+     * are taken into account, so the bounds may be a bit wider than the real ones).
+     */
+    private final double[] factLogMax;
+    private final double[] factLogMin;
+
+    /**
+     * Bounds of log(1 - P(F_j | H)) across all hypotheses (log(1 - p) decreases with p,
+     * so the largest one comes from the smallest probability and vice versa).
+     */
+    private final double[] factLog1mMax;
+    private final double[] factLog1mMin;
+
+    /**
+     * Kernel of the sums across facts.
+     */
+    private final InferenceKernel kernel;
+
+    /**
+     * The constructor precomputes all logarithms of the model (the kernel is the default one).
+     * @param model model with chances and a complete table (dense or sparse).
+     */
+    public LogSpaceEngine(ProbabilityTable model) {
+        this(model, DEFAULT_KERNEL);
+    }
+
+    /**
+     * The constructor precomputes all logarithms of the model.
+     * @param model model with chances and a complete table (dense or sparse).
+     * @param kernel kernel of the sums across facts (for example, {@code InferenceKernel.scalar()}).
+     */
+    public LogSpaceEngine(ProbabilityTable model, InferenceKernel kernel) {
+        this.kernel = kernel;
+        this.hyposCount = model.getHyposCount();
+        this.factsCount = model.getFactsCount();
+
+        this.logPriors = new double[this.hyposCount];
+        for (int i = 0; i < this.hyposCount; ++i) {
+            this.logPriors[i] = Math.log(model.getPrior(i));
+        }
+
+        this.factLogMax = new double[this.factsCount];
+        this.factLogMin = new double[this.factsCount];
+        java.util.Arrays.fill(this.factLogMax, Double.NEGATIVE_INFINITY);
+        java.util.Arrays.fill(this.factLogMin, Double.POSITIVE_INFINITY);
+
+        switch (model) {
+            case ProbabilityModel dense -> {
+                double[] cells = dense.cells();
+                this.logTable = new double[cells.length];
+                this.logTable1m = new double[cells.length];
+                for (int k = 0; k < cells.length; ++k) {
+                    this.logTable[k] = Math.log(cells[k]);
+                    this.logTable1m[k] = Math.log1p(-cells[k]);
+                }
+                for (int i = 0; i < this.hyposCount; ++i) {
+                    for (int j = 0, k = i * this.factsCount; j < this.factsCount; ++j, ++k) {
+                        this.factLogMax[j] = Math.max(this.factLogMax[j], this.logTable[k]);
+                        this.factLogMin[j] = Math.min(this.factLogMin[j], this.logTable[k]);
+                    }
+                }
+                this.rowStart = null;
+                this.explicitFacts = null;
+                this.explicitLog = null;
+                this.explicitLog1m = null;
+                this.defaultLog = null;
+                this.defaultLog1m = null;
+            }
+            case SparseProbabilityModel sparse -> {
+                this.logTable = null;
+                this.logTable1m = null;
+                this.rowStart = new int[this.hyposCount + 1];
+                for (int i = 0; i < this.hyposCount; ++i) {
+                    this.rowStart[i + 1] = this.rowStart[i] + sparse.getExplicitCount(i);
+                }
+
+                int explicit = this.rowStart[this.hyposCount];
+                this.explicitFacts = new int[explicit];
+                this.explicitLog = new double[explicit];
+                this.explicitLog1m = new double[explicit];
+                this.defaultLog = new double[this.hyposCount];
+                this.defaultLog1m = new double[this.hyposCount];
+                for (int i = 0; i < this.hyposCount; ++i) {
+                    double defaultProbability = sparse.getDefault(i);
+                    this.defaultLog[i] = Math.log(defaultProbability);
+                    this.defaultLog1m[i] = Math.log1p(-defaultProbability);
+
+                    int[] facts = sparse.rowColumns(i);
+                    double[] values = sparse.rowValues(i);
+                    for (int k = this.rowStart[i], r = 0; k < this.rowStart[i + 1]; ++k, ++r) {
+                        this.explicitFacts[k] = facts[r];
+                        this.explicitLog[k] = Math.log(values[r]);
+                        this.explicitLog1m[k] = Math.log1p(-values[r]);
+                    }
+                }
+
+                // Bounds: the explicit cells of a fact, plus the defaults, if some hypothesis has no cell there.
+                int[] explicitPerFact = new int[this.factsCount];
+                for (int k = 0; k < explicit; ++k) {
+                    int j = this.explicitFacts[k];
+                    explicitPerFact[j]++;
+                    this.factLogMax[j] = Math.max(this.factLogMax[j], this.explicitLog[k]);
+                    this.factLogMin[j] = Math.min(this.factLogMin[j], this.explicitLog[k]);
+                }
+                // A hypothesis without a default (log 0 = -Infinity) has all its cells explicit in a complete table,
+                // so it never takes a default: otherwise every bound would be -Infinity, and nothing is pruned.
+                double defaultMax = Double.NEGATIVE_INFINITY, defaultMin = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < this.hyposCount; ++i) {
+                    if (!(sparse.getDefault(i) > 0)) { continue; }
+                    defaultMax = Math.max(defaultMax, this.defaultLog[i]);
+                    defaultMin = Math.min(defaultMin, this.defaultLog[i]);
+                }
+                for (int j = 0; j < this.factsCount; ++j) {
+                    if (explicitPerFact[j] < this.hyposCount) {
+                        this.factLogMax[j] = Math.max(this.factLogMax[j], defaultMax);
+                        this.factLogMin[j] = Math.min(this.factLogMin[j], defaultMin);
+                    }
+                }
+            }
+        }
+
+        this.factLog1mMax = new double[this.factsCount];
+        this.factLog1mMin = new double[this.factsCount];
+        for (int j = 0; j < this.factsCount; ++j) {
+            this.factLog1mMax[j] = Math.log1p(-Math.exp(this.factLogMin[j]));
+            this.factLog1mMin[j] = Math.log1p(-Math.exp(this.factLogMax[j]));
+        }
+    }
+
+    /**
+     * Getter of hypotheses count value.
+     */
+    public int getHyposCount() {
+        return this.hyposCount;
+    }
+
+    /**
+     * Getter of facts count value.
+     */
+    public int getFactsCount() {
+        return this.factsCount;
+    }
+
+    /**
+     * Getter of the kernel of the sums across facts.
+     */
+    public InferenceKernel getKernel() {
+        return this.kernel;
+    }
+
+    /**
+     * Unnormalized log-scores of hypotheses, when ALL facts are observed:
+     * log P(H_i) + Σ_j log P(F_j | H_i).
+     * @return new array with scores.
+     */
+    public double[] logScores() {
+        double[] scores = new double[this.hyposCount];
+        for (int i = 0; i < this.hyposCount; ++i) {
+            scores[i] = this.logTable == null
+                    ? sparseRowScore(i, null, this.factsCount, 0)
+                    : this.logPriors[i] + this.kernel.sum(this.logTable, i * this.factsCount, this.factsCount);
+        }
+        return scores;
+    }
+
+    /**
+     * Posterior probabilities of hypotheses, when ALL facts are observed.
+     * @return array of posteriors (their sum is 1.0).
+     * @throws CrashException every hypothesis is impossible.
+     */
+    public double[] posteriors() throws CrashException {
+        return normalize(logScores());
+    }
+
+    /**
+     * Unnormalized log-scores of hypotheses for an evidence vector:
+     * log P(H_i) + Σ_present log P(F_j | H_i) + Σ_absent log(1 - P(F_j | H_i)), unknown facts are skipped.
+     * @param evidence state of every fact.
+     * @return new array with scores.
+     * @throws CrashException the evidence does not match the facts of the model.
+     */
+    public double[] logScores(Evidence evidence) throws CrashException {
+        checkEvidence(evidence);
+        if (evidence.isAllPresent()) { return logScores(); }
+        if (this.logTable == null) { return sparseLogScores(evidence); }
+
+        int[] present = evidence.indicesOf(FactState.PRESENT);
+        int[] absent = evidence.indicesOf(FactState.ABSENT);
+
+        double[] scores = new double[this.hyposCount];
+        for (int i = 0; i < this.hyposCount; ++i) {
+            scores[i] = denseRowScore(i, present, absent);
+        }
+        return scores;
+    }
+
+    /**
+     * Log-score of one hypothesis of a dense table (the facts are split by the caller once for all rows).
+     */
+    private double denseRowScore(int hypo, int[] present, int[] absent) {
+        int offset = hypo * this.factsCount;
+        return this.logPriors[hypo] + this.kernel.sumAt(this.logTable, offset, present, present.length)
+                + this.kernel.sumAt(this.logTable1m, offset, absent, absent.length);
+    }
+
+    /**
+     * Log-scores of a sparse table: the defaults are counted once per hypothesis
+     * (present and absent facts separately), then the explicit cells replace their default terms.
+     */
+    private double[] sparseLogScores(Evidence evidence) {
+        int present = evidence.countOf(FactState.PRESENT);
+        int absent = evidence.countOf(FactState.ABSENT);
+
+        double[] scores = new double[this.hyposCount];
+        for (int i = 0; i < this.hyposCount; ++i) {
+            scores[i] = sparseRowScore(i, evidence, present, absent);
+        }
+        return scores;
+    }
+
+    /**
+     * Log-score of one hypothesis of a sparse table.
+     * @param evidence states of facts (<code>null</code> — all facts are present).
+     * @param present amount of present facts in the evidence.
+     * @param absent amount of absent facts in the evidence.
+     */
+    private double sparseRowScore(int i, Evidence evidence, int present, int absent) {
+        int explicitPresent = 0, explicitAbsent = 0;
+        double explicitSum = 0;
+        for (int k = this.rowStart[i]; k < this.rowStart[i + 1]; ++k) {
+            switch (evidence == null ? FactState.PRESENT : evidence.get(this.explicitFacts[k])) {
+                case PRESENT -> {
+                    explicitPresent++;
+                    explicitSum += this.explicitLog[k];
+                }
+                case ABSENT -> {
+                    explicitAbsent++;
+                    explicitSum += this.explicitLog1m[k];
+                }
+                case UNKNOWN -> { }
+            }
+        }
+        return this.logPriors[i] + explicitSum
+                + times(present - explicitPresent, this.defaultLog[i])
+                + times(absent - explicitAbsent, this.defaultLog1m[i]);
+    }
+
+    /**
+     * {@code count * logValue}, but 0 for no facts (even if the logarithm is infinite).
+     */
+    private static double times(int count, double logValue) {
+        return count == 0 ? 0.0 : count * logValue;
+    }
+
+    /**
+     * Posterior probabilities of hypotheses for an evidence vector.
+     * @param evidence state of every fact.
+     * @return array of posteriors (their sum is 1.0).
+     * @throws CrashException the evidence does not match the model, or every hypothesis is impossible.
+     */
+    public double[] posteriors(Evidence evidence) throws CrashException {
+        return normalize(logScores(evidence));
+    }
+
+    /**
+     * The k most probable hypotheses for an evidence vector, with their EXACT posteriors.<br>
+     * The hypotheses are scanned once: every log-score goes into a bounded heap of the k best ones
+     * and into an online log-sum-exp (the running maximum and the sum of exponents, rescaled when
+     * the maximum grows), so neither the array of all scores nor a full sort is ever created.
+     * Costs O(H log k) time and O(k) memory above the evidence itself.
+     * @param k amount of the wanted hypotheses (if it is larger than their count, all of them are returned).
+     * @param evidence state of every fact.
+     * @return hypotheses from the most probable one; equal scores are ordered by index.
+     * @throws CrashException k is not positive, the evidence does not match the model,
+     *                        or every hypothesis is impossible.
+     */
+    public List<RankedHypothesis> topK(int k, Evidence evidence) throws CrashException {
+        if (k <= 0) {
+            throw new CrashException("The amount of the best hypotheses must be positive: " + k);
+        }
+        checkEvidence(evidence);
+
+        // The facts are split once, then every row is scored on its own.
+        boolean allPresent = evidence.isAllPresent();
+        int[] present = null, absent = null;
+        int presentCount = this.factsCount, absentCount = 0;
+        if (!allPresent && this.logTable != null) {
+            present = evidence.indicesOf(FactState.PRESENT);
+            absent = evidence.indicesOf(FactState.ABSENT);
+        } else if (!allPresent) {
+            presentCount = evidence.countOf(FactState.PRESENT);
+            absentCount = evidence.countOf(FactState.ABSENT);
+        }
+
+        TopScoreHeap heap = new TopScoreHeap(Math.min(k, this.hyposCount));
+        double max = Double.NEGATIVE_INFINITY, sum = 0.0;
+        for (int i = 0; i < this.hyposCount; ++i) {
+            double score;
+            if (this.logTable == null) {
+                score = sparseRowScore(i, allPresent ? null : evidence, presentCount, absentCount);
+            } else if (allPresent) {
+                score = this.logPriors[i] + this.kernel.sum(this.logTable, i * this.factsCount, this.factsCount);
+            } else {
+                score = denseRowScore(i, present, absent);
+            }
+            heap.offer(i, score);
+
+            // Online log-sum-exp: Σ exp(score - max) is kept for the current maximum.
+            if (score > max) {
+                sum = sum * Math.exp(max - score) + 1.0;
+                max = score;
+            } else if (score > Double.NEGATIVE_INFINITY) {
+                sum += Math.exp(score - max);
+            }
+        }
+
+        double normalizer = max + Math.log(sum);
+        if (max == Double.NEGATIVE_INFINITY || Double.isNaN(normalizer)) {
+            throw new CrashException("Division by zero.");
+        }
+
+        int[] indices = new int[heap.size()];
+        double[] scores = new double[heap.size()];
+        heap.drainSorted(indices, scores);
+
+        RankedHypothesis[] ranked = new RankedHypothesis[indices.length];
+        for (int r = 0; r < ranked.length; ++r) {
+            ranked[r] = new RankedHypothesis(indices[r], Math.exp(scores[r] - normalizer));
+        }
+        return List.of(ranked);
+    }
+
+    /**
+     * Pruned (beam) inference for huge models: the observed facts are processed from the most discriminating
+     * one, and a hypothesis is dropped as soon as even its best possible final score is more than
+     * {@code logRatio} below the worst possible final score of the leader (see {@link BeamPruner}).
+     * The dropped hypotheses get the posterior 0, the rest are normalized among themselves,
+     * and the result reports the bound of the error this introduced.
+     * @param evidence state of every fact.
+     * @param logRatio margin of pruning, natural logarithm of the likelihood ratio (for example, 20 ≈ e^-20).
+     * @return posteriors with the amount of pruned hypotheses and the error bound.
+     * @throws CrashException the margin is not positive, the evidence does not match the model,
+     *                        or every hypothesis is impossible.
+     */
+    public PrunedPosteriors prunedPosteriors(Evidence evidence, double logRatio) throws CrashException {
+        if (!(logRatio > 0)) {
+            throw new CrashException("The margin of pruning must be positive: " + logRatio);
+        }
+        checkEvidence(evidence);
+        return BeamPruner.run(this, evidence, logRatio);
+    }
+
+    /**
+     * Posterior matrix for a batch of evidence vectors against this model.
+     * The cases are independent, so they are spread across the cores (the common fork-join pool).
+     * @param batch evidence vectors.
+     * @return matrix {@code [case][hypothesis]}.
+     * @throws CrashException some evidence does not match the model, or makes every hypothesis impossible.
+     */
+    public double[][] posteriorBatch(List<Evidence> batch) throws CrashException {
+        double[][] matrix = new double[batch.size()][];
+        IntStream.range(0, batch.size()).parallel()
+                .forEach(k -> matrix[k] = posteriors(batch.get(k)));
+        return matrix;
+    }
+
+    /**
+     * Creates an updatable posterior without observations (see {@link PosteriorState}).
+     * @return new state, bound to this engine.
+     */
+    public PosteriorState newPosteriorState() {
+        return new PosteriorState(this);
+    }
+
+    /**
+     * @param hypo zero-based hypothesis index.
+     * @return log P(H_hypo).
+     */
+    double logPrior(int hypo) {
+        return this.logPriors[hypo];
+    }
+
+    /**
+     * Contribution of one observed fact to the log-score of one hypothesis.
+     * @param hypo zero-based hypothesis index.
+     * @param fact zero-based fact index.
+     * @param state {@code PRESENT} or {@code ABSENT} ({@code UNKNOWN} gives 0).
+     * @return log P(F | H) or log(1 - P(F | H)).
+     */
+    double contribution(int hypo, int fact, FactState state) {
+        if (this.logTable == null) {
+            int k = java.util.Arrays.binarySearch(this.explicitFacts, this.rowStart[hypo], this.rowStart[hypo + 1], fact);
+            return switch (state) {
+                case PRESENT -> k >= 0 ? this.explicitLog[k] : this.defaultLog[hypo];
+                case ABSENT -> k >= 0 ? this.explicitLog1m[k] : this.defaultLog1m[hypo];
+                case UNKNOWN -> 0.0;
+            };
+        }
+
+        return switch (state) {
+            case PRESENT -> this.logTable[hypo * this.factsCount + fact];
+            case ABSENT -> this.logTable1m[hypo * this.factsCount + fact];
+            case UNKNOWN -> 0.0;
+        };
+    }
+
+    /**
+     * Contribution of a block of observed facts to the log-score of one hypothesis
+     * (for the pruned inference, which adds the facts block by block).
+     * @param hypo zero-based hypothesis index.
+     * @param present present facts of the block.
+     * @param absent absent facts of the block.
+     * @return Σ_present log P(F | H) + Σ_absent log(1 - P(F | H)).
+     */
+    double blockContribution(int hypo, int[] present, int[] absent) {
+        if (this.logTable == null) {
+            double sum = 0;
+            for (int j : present) { sum += contribution(hypo, j, FactState.PRESENT); }
+            for (int j : absent) { sum += contribution(hypo, j, FactState.ABSENT); }
+            return sum;
+        }
+
+        int offset = hypo * this.factsCount;
+        return this.kernel.sumAt(this.logTable, offset, present, present.length)
+                + this.kernel.sumAt(this.logTable1m, offset, absent, absent.length);
+    }
+
+    /**
+     * The largest contribution of an observed fact over all hypotheses (an upper bound for the pruning).
+     */
+    double maxContribution(int fact, FactState state) {
+        return switch (state) {
+            case PRESENT -> this.factLogMax[fact];
+            case ABSENT -> this.factLog1mMax[fact];
+            case UNKNOWN -> 0.0;
+        };
+    }
+
+    /**
+     * The smallest contribution of an observed fact over all hypotheses (a lower bound for the pruning).
+     */
+    double minContribution(int fact, FactState state) {
+        return switch (state) {
+            case PRESENT -> this.factLogMin[fact];
+            case ABSENT -> this.factLog1mMin[fact];
+            case UNKNOWN -> 0.0;
+        };
+    }
+
+    /**
+     * Industrial check of the size of an evidence vector.
+     * @throws CrashException the evidence is null or its size differs from the facts count.
+     */
+    private void checkEvidence(Evidence evidence) throws CrashException {
+        if (evidence == null || evidence.size() != this.factsCount) {
+            throw new CrashException("Evidence must contain exactly " + this.factsCount + " facts, but contains "
+                    + (evidence == null ? "nothing" : evidence.size()) + ".");
+        }
+    }
+
+    /**
+     * Logarithm of the sum of exponents, computed without overflow and underflow:
+     * log Σ exp(v_i) = m + log Σ exp(v_i - m), where m = max(v_i).
+     * @param values log-values.
+     * @return log of the sum (or {@code -Infinity}, if every value is {@code -Infinity}).
+     */
+    public static double logSumExp(double[] values) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : values) {
+            if (value > max) { max = value; }
+        }
+        if (max == Double.NEGATIVE_INFINITY) { return max; }
+
+        double sum = 0.0;
+        for (double value : values) {
+            sum += Math.exp(value - max);
+        }
+        return max + Math.log(sum);
+    }
+
+    /**
+     * Converts log-scores to posterior probabilities IN PLACE (exp(score - logSumExp)).
+     * @param logScores unnormalized log-scores (will be overwritten).
+     * @return the same array with posteriors.
+     * @throws CrashException every hypothesis is impossible (a division by zero in linear space).
+     */
+    static double[] normalize(double[] logScores) throws CrashException {
+        double normalizer = logSumExp(logScores);
+        if (normalizer == Double.NEGATIVE_INFINITY || Double.isNaN(normalizer)) {
+            throw new CrashException("Division by zero.");
+        }
+
+        for (int i = 0; i < logScores.length; ++i) {
+            logScores[i] = Math.exp(logScores[i] - normalizer);
+        }
+        return logScores;
+    }
+}
@@ -0,0 +1,345 @@
+package pets.bayesianlogic.stuff;
+
+import pets.bayesianlogic.except.IncorrectFileValuesException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Byte-level parser of the lines with the keyword «prob» for huge tables. <br>
+ * The file is read through a memory-mapped {@code FileChannel}, the fields separated by «;»
+ * are tokenized straight from the bytes and the numbers are parsed without intermediate strings,
+ * so not a single object is created per line (unlike {@code String.split} + {@code Double.parseDouble}). <br>
+ * The lines with other keywords are skipped, so the parser works both with a full file and
+ * with a file that contains only probabilities. All checked values go to
+ * {@code BayesianBody.storeProbability(...)}, that is, the errors are the same as for the line parser. <br>
+ * The tokenizer of one line ({@link #scanLine}) reports its status instead of throwing,
+ * so the parallel parser ({@link ParallelProbabilityParser}) reuses it per chunk.
+ * @author Kolesnikov Stephan
+ */
+final class MappedProbabilityParser {
+
+    /**
+     * Size of one mapped window of the file (the file is mapped piece by piece, aligned to lines).
+     */
+    private static final long WINDOW_SIZE = 1L << 28;
+
+    /**
+     * Maximum mantissa that is represented as a double without rounding (2^53).
+     */
+    private static final long EXACT_MANTISSA_LIMIT = 1L << 53;
+
+    /**
+     * Exactly represented powers of ten (fast path of double parsing).
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Statuses of a scanned line.
+     */
+    static final int LINE_BLANK = 0;
+    static final int LINE_OTHER = 1;
+    static final int LINE_CELL = 2;
+    static final int LINE_PARTS_FAILURE = 3;
+    static final int LINE_VALUE_FAILURE = 4;
+
+    /**
+     * Body, whose table is being filled.
+     */
+    private final BayesianBody body;
+
+    /**
+     * Logger of the body.
+     */
+    private final Logger toLog;
+
+    /**
+     * Amount of processed lines with the keyword «prob».
+     */
+    private long probabilityLines = 0;
+
+    /**
+     * Field with the parsed integer (to return it from a method without boxing).
+     */
+    private int parsedInt = 0;
+
+    /**
+     * Field with the parsed double (to return it from a method without boxing).
+     */
+    private double parsedDouble = 0;
+
+    /**
+     * Zero-based hypothesis index of the last line with status {@code LINE_CELL}.
+     */
+    int parsedHypo = 0;
+
+    /**
+     * Zero-based fact index of the last line with status {@code LINE_CELL}.
+     */
+    int parsedFact = 0;
+
+    /**
+     * Probability of the last line with status {@code LINE_CELL}.
+     */
+    double parsedProbability = 0;
+
+    /**
+     * @param body body with the created table.
+     * @param toLog logger of the body.
+     */
+    MappedProbabilityParser(BayesianBody body, Logger toLog) {
+        this.body = body;
+        this.toLog = toLog;
+    }
+
+    /**
+     * Parses the whole file window by window.
+     * @param path path to the file.
+     * @return amount of processed lines with the keyword «prob».
+     * @throws IncorrectFileValuesException failure of values or reading.
+     */
+    long parse(Path path) throws IncorrectFileValuesException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+
+            while (position < size) {
+                long length = Math.min(WINDOW_SIZE, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean lastWindow = position + length == size;
+
+                int consumed = parseWindow(window, (int) length, lastWindow);
+                if (consumed == 0) {
+                    IncorrectFileValuesException e = new IncorrectFileValuesException(
+                            "A line of the file is longer than " + WINDOW_SIZE + " bytes.");
+                    toLog.severe(e.getMessage());
+                    throw e;
+                }
+                position += consumed;
+            }
+        } catch (IncorrectFileValuesException e) {
+            throw e;
+        } catch (IOException e) {
+            IncorrectFileValuesException ex
+                    = new IncorrectFileValuesException("Reading file failure: " + e.getMessage());
+            toLog.log(Level.SEVERE, "File data failure.", e);
+            throw ex;
+        }
+
+        toLog.info(this.probabilityLines + " lines with the keyword «prob» were parsed from bytes.");
+        return this.probabilityLines;
+    }
+
+    /**
+     * Parses all complete lines of the window.
+     * @return amount of consumed bytes (the incomplete last line is left for the next window).
+     */
+    private int parseWindow(MappedByteBuffer window, int limit, boolean lastWindow)
+            throws IncorrectFileValuesException {
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && window.get(lineEnd) != '\n') { lineEnd++; }
+
+            if (lineEnd == limit && !lastWindow) {
+                return lineStart;
+            }
+
+            parseLine(window, lineStart, lineEnd);
+            lineStart = lineEnd + 1;
+        }
+        return limit;
+    }
+
+    /**
+     * Parses one line {@code [from; to)}, if its keyword is «prob» (in any case).
+     */
+    private void parseLine(MappedByteBuffer buf, int from, int to)
+            throws IncorrectFileValuesException {
+        switch (scanLine(buf, from, to)) {
+            case LINE_PARTS_FAILURE -> throw body.probabilityPartsFailure();
+            case LINE_VALUE_FAILURE -> throw body.probabilityValueFailure();
+            case LINE_CELL -> {
+                body.storeProbability(this.parsedHypo, this.parsedFact, this.parsedProbability);
+                this.probabilityLines++;
+            }
+            default -> { }
+        }
+    }
+
+    /**
+     * Tokenizes one line {@code [from; to)} without throwing anything.
+     * For {@code LINE_CELL} the values are put into {@code parsedHypo}, {@code parsedFact}, {@code parsedProbability}.
+     * @return status of the line: {@code LINE_BLANK}, {@code LINE_OTHER} (another keyword), {@code LINE_CELL},
+     *         {@code LINE_PARTS_FAILURE} or {@code LINE_VALUE_FAILURE}.
+     */
+    int scanLine(ByteBuffer buf, int from, int to) {
+        // The same as String.trim(): all symbols up to the space.
+        while (from < to && (buf.get(from) & 0xFF) <= ' ') { from++; }
+        while (to > from && (buf.get(to - 1) & 0xFF) <= ' ') { to--; }
+        if (from == to) { return LINE_BLANK; }
+
+        int firstSeparator = indexOf(buf, from, to);
+        if (!isProbKeyword(buf, from, firstSeparator < 0 ? to : firstSeparator)) { return LINE_OTHER; }
+
+        if (firstSeparator < 0) { return LINE_PARTS_FAILURE; }
+        int secondSeparator = indexOf(buf, firstSeparator + 1, to);
+        int thirdSeparator = secondSeparator < 0 ? -1 : indexOf(buf, secondSeparator + 1, to);
+        if (thirdSeparator < 0 || indexOf(buf, thirdSeparator + 1, to) >= 0) {
+            return LINE_PARTS_FAILURE;
+        }
+
+        if (!parseInt(buf, firstSeparator + 1, secondSeparator)) { return LINE_VALUE_FAILURE; }
+        this.parsedHypo = this.parsedInt - 1;
+        if (!parseInt(buf, secondSeparator + 1, thirdSeparator)) { return LINE_VALUE_FAILURE; }
+        this.parsedFact = this.parsedInt - 1;
+        if (!parseDouble(buf, thirdSeparator + 1, to)) { return LINE_VALUE_FAILURE; }
+        this.parsedProbability = this.parsedDouble;
+
+        return LINE_CELL;
+    }
+
+    /**
+     * Keyword of a line {@code [from; to)}: trimmed and in lower case (a string is created, so only for rare lines).
+     */
+    static String keywordOf(ByteBuffer buf, int from, int to) {
+        int separator = indexOf(buf, from, to);
+        byte[] keyword = new byte[(separator < 0 ? to : separator) - from];
+        buf.get(from, keyword);
+        return new String(keyword, StandardCharsets.UTF_8).trim().toLowerCase(java.util.Locale.ROOT);
+    }
+
+    /**
+     * @return index of the first «;» in {@code [from; to)} or -1.
+     */
+    private static int indexOf(ByteBuffer buf, int from, int to) {
+        for (int i = from; i < to; ++i) {
+            if (buf.get(i) == ';') { return i; }
+        }
+        return -1;
+    }
+
+    /**
+     * Case-insensitive comparison of the trimmed keyword with «prob».
+     */
+    private static boolean isProbKeyword(ByteBuffer buf, int from, int to) {
+        while (to > from && (buf.get(to - 1) & 0xFF) <= ' ') { to--; }
+        return to - from == 4
+                && (buf.get(from) | 0x20) == 'p'
+                && (buf.get(from + 1) | 0x20) == 'r'
+                && (buf.get(from + 2) | 0x20) == 'o'
+                && (buf.get(from + 3) | 0x20) == 'b';
+    }
+
+    /**
+     * Parses the trimmed field as {@code Integer.parseInt} does, the result goes to {@code parsedInt}.
+     * @return false, if the field is not an integer.
+     */
+    private boolean parseInt(ByteBuffer buf, int from, int to) {
+        while (from < to && (buf.get(from) & 0xFF) <= ' ') { from++; }
+        while (to > from && (buf.get(to - 1) & 0xFF) <= ' ') { to--; }
+
+        boolean negative = false;
+        if (from < to && (buf.get(from) == '-' || buf.get(from) == '+')) {
+            negative = buf.get(from) == '-';
+            from++;
+        }
+        if (from == to) { return false; }
+
+        long value = 0;
+        for (int i = from; i < to; ++i) {
+            int digit = buf.get(i) - '0';
+            if (digit < 0 || digit > 9) { return false; }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) { return false; }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) { return false; }
+
+        this.parsedInt = (int) value;
+        return true;
+    }
+
+    /**
+     * Parses the trimmed field as {@code Double.parseDouble} does, the result goes to {@code parsedDouble}.<br>
+     * Usual decimals ({@code 0.78}, {@code 1}, {@code 5e-3}) are parsed from the bytes:
+     * when the mantissa has at most 53 bits and the power of ten is at most 22,
+     * one multiplication or division gives the correctly rounded result.
+     * Any other notation is passed to {@code Double.parseDouble} (the only case with a string).
+     * @return false, if the field is not a number.
+     */
+    private boolean parseDouble(ByteBuffer buf, int from, int to) {
+        while (from < to && (buf.get(from) & 0xFF) <= ' ') { from++; }
+        while (to > from && (buf.get(to - 1) & 0xFF) <= ' ') { to--; }
+
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buf.get(i) == '-' || buf.get(i) == '+')) {
+            negative = buf.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int exponent = 0, digits = 0;
+        boolean fastPath = true;
+
+        for (; i < to && isDigit(buf.get(i)); ++i, ++digits) {
+            mantissa = mantissa * 10 + (buf.get(i) - '0');
+        }
+        if (i < to && buf.get(i) == '.') {
+            for (i++; i < to && isDigit(buf.get(i)); ++i, ++digits) {
+                mantissa = mantissa * 10 + (buf.get(i) - '0');
+                exponent--;
+            }
+        }
+        if (digits == 0 || digits > 18) { fastPath = false; }
+
+        if (fastPath && i < to && (buf.get(i) | 0x20) == 'e') {
+            i++;
+            boolean negativeExponent = false;
+            if (i < to && (buf.get(i) == '-' || buf.get(i) == '+')) {
+                negativeExponent = buf.get(i) == '-';
+                i++;
+            }
+            int written = 0, explicitExponent = 0;
+            for (; i < to && isDigit(buf.get(i)) && written < 4; ++i, ++written) {
+                explicitExponent = explicitExponent * 10 + (buf.get(i) - '0');
+            }
+            if (written == 0) { fastPath = false; }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if (fastPath && i == to && mantissa <= EXACT_MANTISSA_LIMIT
+                && exponent >= -22 && exponent <= 22) {
+            double value = exponent < 0
+                    ? mantissa / POWERS_OF_TEN[-exponent]
+                    : mantissa * POWERS_OF_TEN[exponent];
+            this.parsedDouble = negative ? -value : value;
+            return true;
+        }
+
+        // Rare notation (NaN, hex, long mantissa...): a string is created only here.
+        byte[] field = new byte[to - from];
+        buf.get(from, field);
+        try {
+            this.parsedDouble = Double.parseDouble(new String(field, StandardCharsets.ISO_8859_1));
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+}
@@ -0,0 +1,291 @@
+package pets.bayesianlogic.stuff;
+
+import pets.bayesianlogic.except.CrashException;
+import pets.bayesianlogic.metrics.BayesianMetrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide cache of loaded and compiled models. <br>
+ * A model is identified by its path, last-modified time and size (and, optionally, the SHA-256 of the content),
+ * so a changed file is loaded again and its old version is dropped. Models are evicted in LRU order
+ * when their estimated size exceeds the memory budget. Concurrent requests for the same file
+ * wait for ONE load (the others do not read the file). <br>
+ * Counters of hits, misses and evictions are available for monitoring (they are also summed over all caches
+ * of the process in {@link BayesianMetrics}).
+ * @author Kolesnikov Stephan
+ */
+public final class ModelCache {
+
+    /**
+     * Name of the system property with the budget of the shared cache, in bytes (256 MiB by default).
+     */
+    public static final String BUDGET_PROPERTY = "pets.bayesianlogic.cache.bytes";
+
+    /**
+     * Extension of the files, which are read by {@code readBinary(Path)} by the default loader.
+     */
+    public static final String BINARY_EXTENSION = ".baym";
+
+    /**
+     * Loader of a model that is missing in the cache.
+     */
+    @FunctionalInterface
+    public interface ModelLoader {
+        /**
+         * @param path path to the model file.
+         * @return compiled model.
+         * @throws IOException any failure of reading (including the exceptions of {@code BayesianBody}).
+         */
+        CompiledBayesianModel load(Path path) throws IOException;
+    }
+
+    /**
+     * Identity of a version of a model file.
+     * @param path absolute normalized path.
+     * @param lastModified last-modified time, in milliseconds.
+     * @param size size, in bytes.
+     * @param contentHash SHA-256 of the content (or <code>null</code>, if hashing is off).
+     */
+    public record Key(Path path, long lastModified, long size, String contentHash) {}
+
+    /**
+     * Entry of the cache: the load (finished or not) and its estimated size.
+     */
+    private static final class Entry {
+        private final CompletableFuture<CompiledBayesianModel> future = new CompletableFuture<>();
+        private long bytes = 0;
+    }
+
+    /**
+     * Lazy holder of the shared cache.
+     */
+    private static final class SharedHolder {
+        private static final ModelCache INSTANCE = new ModelCache(
+                Long.getLong(BUDGET_PROPERTY, 256L << 20), false, ModelCache::loadDefault);
+    }
+
+    /**
+     * Entries in the access order (the eldest one is evicted first). Guarded by {@code this}.
+     */
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Sum of the estimated sizes of the loaded entries. Guarded by {@code this}.
+     */
+    private long usedBytes = 0;
+
+    private final long budgetBytes;
+    private final boolean hashContent;
+    private final ModelLoader loader;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param budgetBytes memory budget of the cache (estimated size of compiled models).
+     * @param hashContent whether the SHA-256 of the content is a part of the key
+     *                    (the file is read on every request, but a change with the same time and size is noticed).
+     * @param loader loader of the missing models.
+     */
+    public ModelCache(long budgetBytes, boolean hashContent, ModelLoader loader) {
+        this.budgetBytes = budgetBytes;
+        this.hashContent = hashContent;
+        this.loader = loader;
+    }
+
+    /**
+     * @return the process-wide cache with the default loader
+     *         ({@code readBinary(Path)} for {@value #BINARY_EXTENSION} files, otherwise {@code readAllStreaming(Path)}).
+     */
+    public static ModelCache shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    /**
+     * Default loader: a new {@code BayesianBody} reads the file and compiles it.
+     */
+    static CompiledBayesianModel loadDefault(Path path) throws IOException {
+        BayesianBody body = new BayesianBody(path);
+        if (path.getFileName().toString().endsWith(BINARY_EXTENSION)) {
+            body.readBinary(null);
+        } else {
+            body.readAllStreaming(null);
+        }
+        return body.compile();
+    }
+
+    /**
+     * Gives the compiled model of the file: from the cache, or loads it (one load per version of the file).
+     * @param path path to the model file.
+     * @return compiled model (immutable, may be shared).
+     * @throws IOException failure of the file or of its load (the same exception for every waiting thread).
+     */
+    public CompiledBayesianModel get(Path path) throws IOException {
+        Key key = keyOf(path);
+
+        Entry entry;
+        boolean loading = false;
+        synchronized (this) {
+            entry = this.entries.get(key);
+            if (entry != null) {
+                this.hits.increment();
+                BayesianMetrics.shared().modelCacheHit();
+            } else {
+                this.misses.increment();
+                BayesianMetrics.shared().modelCacheMiss();
+                removeOtherVersions(key.path());
+                entry = new Entry();
+                this.entries.put(key, entry);
+                loading = true;
+            }
+        }
+
+        if (loading) {
+            try {
+                CompiledBayesianModel model = this.loader.load(key.path());
+                synchronized (this) {
+                    if (this.entries.get(key) == entry) {
+                        entry.bytes = model.estimatedBytes();
+                        this.usedBytes += entry.bytes;
+                        evictOverBudget(key);
+                    }
+                }
+                entry.future.complete(model);
+            } catch (IOException | RuntimeException | Error e) {
+                synchronized (this) {
+                    this.entries.remove(key, entry);
+                }
+                entry.future.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        return await(entry.future);
+    }
+
+    /**
+     * Drops every entry of the file (for example, after its explicit rewrite).
+     * @param path path to the model file.
+     */
+    public synchronized void invalidate(Path path) {
+        removeOtherVersions(path.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Drops all entries.
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.usedBytes = 0;
+    }
+
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return this.evictions.sum();
+    }
+
+    /**
+     * @return estimated size of the loaded models, in bytes.
+     */
+    public synchronized long getUsedBytes() {
+        return this.usedBytes;
+    }
+
+    /**
+     * @return amount of entries (including loads in progress).
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    public long getBudgetBytes() {
+        return this.budgetBytes;
+    }
+
+    /**
+     * Key of the current version of the file.
+     */
+    private Key keyOf(Path path) throws IOException {
+        Path normalized = path.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(normalized, BasicFileAttributes.class);
+        return new Key(normalized, attributes.lastModifiedTime().toMillis(), attributes.size(),
+                this.hashContent ? sha256(normalized) : null);
+    }
+
+    private static String sha256(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new CrashException("SHA-256 is not available: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Removes the entries of older (or newer) versions of the same file. Called under {@code this}.
+     */
+    private void removeOtherVersions(Path path) {
+        for (Iterator<Map.Entry<Key, Entry>> it = this.entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Key, Entry> current = it.next();
+            if (current.getKey().path().equals(path)) {
+                this.usedBytes -= current.getValue().bytes;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Evicts the eldest loaded entries until the budget is respected
+     * (the just loaded entry is never evicted). Called under {@code this}.
+     */
+    private void evictOverBudget(Key keep) {
+        for (Iterator<Map.Entry<Key, Entry>> it = this.entries.entrySet().iterator();
+             it.hasNext() && this.usedBytes > this.budgetBytes; ) {
+            Map.Entry<Key, Entry> eldest = it.next();
+            if (eldest.getKey().equals(keep) || !eldest.getValue().future.isDone()) { continue; }
+
+            this.usedBytes -= eldest.getValue().bytes;
+            it.remove();
+            this.evictions.increment();
+            BayesianMetrics.shared().modelCacheEviction();
+        }
+    }
+
+    private static CompiledBayesianModel await(CompletableFuture<CompiledBayesianModel> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) { throw io; }
+            if (cause instanceof RuntimeException runtime) { throw runtime; }
+            if (cause instanceof Error error) { throw error; }
+            throw new CrashException("Model load failure: " + cause);
+        }
+    }
+}
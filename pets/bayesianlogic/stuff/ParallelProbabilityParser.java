@@ -0,0 +1,430 @@
+package pets.bayesianlogic.stuff;
+
+import pets.bayesianlogic.except.CrashException;
+import pets.bayesianlogic.except.IncorrectFileValuesException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Parallel parser of the part of the file with the keyword «prob». <br>
+ * Every {@code prob} line is an independent assignment of one cell, so the part is split into line-aligned
+ * byte ranges, and the ranges are tokenized on a {@code ForkJoinPool} (by the same byte tokenizer as
+ * {@link MappedProbabilityParser}) straight into the shared row-major table: different lines write different cells.
+ * The filled cells are marked in an atomic bitset. <br>
+ * The errors are reported deterministically, whatever the order of the threads is:
+ * <ol>
+ *     <li>a broken line (parts, values, range of indices or probability, header keyword):
+ *     the one with the SMALLEST byte offset (the same line a sequential reader would stop at);</li>
+ *     <li>otherwise, a cell given more than once: the one with the smallest row-major index;</li>
+ *     <li>otherwise, a missing cell: the one with the smallest row-major index.</li>
+ * </ol>
+ * @author Kolesnikov Stephan
+ */
+final class ParallelProbabilityParser {
+
+    /**
+     * Range sizes: not smaller than this (small files are not worth the split)...
+     */
+    private static final long MIN_RANGE = 1L << 20;
+
+    /**
+     * ...and not larger than this (one mapping per range must fit into an int).
+     */
+    private static final long MAX_RANGE = 1L << 26;
+
+    /**
+     * Kinds of the broken lines.
+     */
+    private static final int FAILURE_NONE = 0;
+    private static final int FAILURE_PARTS = 1;
+    private static final int FAILURE_VALUE = 2;
+    private static final int FAILURE_STORE = 3;
+    private static final int FAILURE_KEYWORD = 4;
+
+    /**
+     * Body with the read header and the created (empty) table.
+     */
+    private final BayesianBody body;
+
+    /**
+     * Logger of the body.
+     */
+    private final Logger toLog;
+
+    /**
+     * Pool of the tasks.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The table of the body.
+     */
+    private final ProbabilityModel model;
+
+    /**
+     * Cells of the table (written by the tasks, every cell by one line).
+     */
+    private final double[] cells;
+
+    /**
+     * Number of facts (width of a row).
+     */
+    private final int factsCount;
+
+    /**
+     * Bitset of the filled cells.
+     */
+    private final AtomicLongArray filled;
+
+    /**
+     * @param body body with the read header and the created table.
+     * @param toLog logger of the body.
+     * @param pool pool of the tasks.
+     * @param model the table of the body (filled in place).
+     */
+    ParallelProbabilityParser(BayesianBody body, Logger toLog, ForkJoinPool pool, ProbabilityModel model) {
+        this.body = body;
+        this.toLog = toLog;
+        this.pool = pool;
+        this.model = model;
+        this.cells = model.cellsForWrite();
+        this.factsCount = model.getFactsCount();
+        this.filled = new AtomicLongArray((this.cells.length + 63) >>> 6);
+    }
+
+    /**
+     * Outcome of one or several ranges.
+     * @param failureOffset byte offset of the first broken line (or {@code Long.MAX_VALUE}).
+     * @param failureKind kind of the first broken line.
+     * @param hypo zero-based hypothesis index of the broken line (for {@code FAILURE_STORE}).
+     * @param fact zero-based fact index of the broken line (for {@code FAILURE_STORE}).
+     * @param probability probability of the broken line (for {@code FAILURE_STORE}).
+     * @param keyword keyword of the broken line (for {@code FAILURE_KEYWORD}).
+     * @param duplicate smallest row-major index of a cell given more than once (or {@code Integer.MAX_VALUE}).
+     * @param lines amount of the parsed cells.
+     */
+    private record Outcome(long failureOffset, int failureKind, int hypo, int fact, double probability,
+                           String keyword, int duplicate, long lines) {
+
+        static Outcome merge(Outcome left, Outcome right) {
+            Outcome first = left.failureOffset <= right.failureOffset ? left : right;
+            return new Outcome(first.failureOffset, first.failureKind, first.hypo, first.fact, first.probability,
+                    first.keyword, Math.min(left.duplicate, right.duplicate), left.lines + right.lines);
+        }
+    }
+
+    /**
+     * Byte offset of the first line with the keyword «prob» (broken or not), that is, the start of the table part.
+     * @return offset or -1, if there is no such line.
+     * @throws IncorrectFileValuesException reading failure.
+     */
+    static long findSectionStart(FileChannel channel, BayesianBody body, Logger toLog)
+            throws IncorrectFileValuesException {
+        MappedProbabilityParser scanner = new MappedProbabilityParser(body, toLog);
+        try {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                int length = (int) Math.min(MAX_RANGE, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean lastWindow = position + length == size;
+
+                int lineStart = 0;
+                while (lineStart < length) {
+                    int lineEnd = lineStart;
+                    while (lineEnd < length && window.get(lineEnd) != '\n') { lineEnd++; }
+                    if (lineEnd == length && !lastWindow) { break; }
+
+                    int status = scanner.scanLine(window, lineStart, lineEnd);
+                    if (status != MappedProbabilityParser.LINE_BLANK && status != MappedProbabilityParser.LINE_OTHER) {
+                        return position + lineStart;
+                    }
+                    lineStart = lineEnd + 1;
+                }
+                if (lineStart == 0 && !lastWindow) {
+                    throw longLine(toLog);
+                }
+                position += Math.min(lineStart, length);
+            }
+            return -1;
+        } catch (IOException e) {
+            throw readingFailure(toLog, e);
+        }
+    }
+
+    /**
+     * Parses the part {@code [from; end of file)} into the table and checks that every cell is given exactly once.
+     * @param channel opened file.
+     * @param from offset of the table part (a line start).
+     * @return amount of the parsed lines.
+     * @throws IncorrectFileValuesException the first broken line, duplicated or missing cell (see the class doc).
+     */
+    long parse(FileChannel channel, long from) throws IncorrectFileValuesException {
+        long[] bounds;
+        Outcome outcome;
+        try {
+            bounds = split(channel, from);
+            outcome = this.pool.invoke(new RangeTask(channel, bounds, 0, bounds.length - 1));
+        } catch (IOException e) {
+            throw readingFailure(this.toLog, e);
+        } catch (UncheckedIOException e) {
+            throw readingFailure(this.toLog, e.getCause());
+        }
+
+        if (outcome.failureKind != FAILURE_NONE) {
+            throw failureOf(channel, outcome);
+        }
+        if (outcome.duplicate != Integer.MAX_VALUE) {
+            throw cellFailure(outcome.duplicate, "is given more than once");
+        }
+        int missing = firstMissingCell();
+        if (missing >= 0) {
+            throw cellFailure(missing, "is missing");
+        }
+        // Every cell is given once and was accepted (so it is not 0): the table needs no recount.
+        this.model.markAllFilled();
+
+        this.toLog.info(outcome.lines + " lines with the keyword «prob» were parsed in "
+                + (bounds.length - 1) + " ranges (parallelism " + this.pool.getParallelism() + ").");
+        return outcome.lines;
+    }
+
+    /**
+     * Splits {@code [from; size)} into line-aligned ranges.
+     * @return bounds: range k is {@code [bounds[k]; bounds[k + 1])}.
+     */
+    private long[] split(FileChannel channel, long from) throws IOException, IncorrectFileValuesException {
+        long size = channel.size();
+        long target = Math.clamp((size - from) / (this.pool.getParallelism() * 8L), MIN_RANGE, MAX_RANGE);
+
+        long[] bounds = new long[16];
+        int count = 0;
+        bounds[count++] = from;
+
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long start = from;
+        while (start < size) {
+            long end = start + target >= size ? size : nextLineStart(channel, start + target, size, probe);
+            if (end - start > Integer.MAX_VALUE) {
+                throw longLine(this.toLog);
+            }
+            if (count == bounds.length) {
+                bounds = java.util.Arrays.copyOf(bounds, count * 2);
+            }
+            bounds[count++] = end;
+            start = end;
+        }
+        return java.util.Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * @return offset right after the first «\n» at or after {@code position} (or the size of the file).
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer probe)
+            throws IOException {
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) { break; }
+            for (int i = 0; i < read; ++i) {
+                if (probe.get(i) == '\n') { return position + i + 1; }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Task over ranges {@code [lo; hi)}: halves them until one range is left
+     * ({@code ForkJoinTask} is {@code Serializable}, but this task is never serialized).
+     */
+    @SuppressWarnings("serial")
+    private final class RangeTask extends RecursiveTask<Outcome> {
+        private final FileChannel channel;
+        private final long[] bounds;
+        private final int lo;
+        private final int hi;
+
+        RangeTask(FileChannel channel, long[] bounds, int lo, int hi) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Outcome compute() {
+            if (this.hi - this.lo == 1) {
+                try {
+                    return parseRange(this.channel, this.bounds[this.lo], this.bounds[this.hi]);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            int middle = (this.lo + this.hi) >>> 1;
+            RangeTask left = new RangeTask(this.channel, this.bounds, this.lo, middle);
+            left.fork();
+            Outcome right = new RangeTask(this.channel, this.bounds, middle, this.hi).compute();
+            return Outcome.merge(left.join(), right);
+        }
+    }
+
+    /**
+     * Parses one range {@code [start; end)} (it starts at a line start and ends after a «\n» or at the end of file).
+     * The range stops at its first broken line: every later line of it has a larger offset anyway.
+     */
+    private Outcome parseRange(FileChannel channel, long start, long end) throws IOException {
+        int length = (int) (end - start);
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        MappedProbabilityParser scanner = new MappedProbabilityParser(this.body, this.toLog);
+
+        int duplicate = Integer.MAX_VALUE;
+        long lines = 0;
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && buf.get(lineEnd) != '\n') { lineEnd++; }
+
+            int failure = FAILURE_NONE;
+            String keyword = null;
+            switch (scanner.scanLine(buf, lineStart, lineEnd)) {
+                case MappedProbabilityParser.LINE_PARTS_FAILURE -> failure = FAILURE_PARTS;
+                case MappedProbabilityParser.LINE_VALUE_FAILURE -> failure = FAILURE_VALUE;
+                case MappedProbabilityParser.LINE_OTHER -> {
+                    keyword = MappedProbabilityParser.keywordOf(buf, lineStart, lineEnd);
+                    if (BayesianBody.HEADER_KEYWORDS.contains(keyword)) { failure = FAILURE_KEYWORD; }
+                }
+                case MappedProbabilityParser.LINE_CELL -> {
+                    if (!this.body.isStorable(scanner.parsedHypo, scanner.parsedFact, scanner.parsedProbability)) {
+                        failure = FAILURE_STORE;
+                    } else {
+                        int index = scanner.parsedHypo * this.factsCount + scanner.parsedFact;
+                        long mask = 1L << index;
+                        long previous = this.filled.getAndAccumulate(index >>> 6, mask, (a, b) -> a | b);
+                        if ((previous & mask) != 0) {
+                            duplicate = Math.min(duplicate, index);
+                        } else {
+                            this.cells[index] = scanner.parsedProbability;
+                        }
+                        lines++;
+                    }
+                }
+                default -> { }
+            }
+
+            if (failure != FAILURE_NONE) {
+                return new Outcome(start + lineStart, failure, scanner.parsedHypo, scanner.parsedFact,
+                        scanner.parsedProbability, keyword, duplicate, lines);
+            }
+            lineStart = lineEnd + 1;
+        }
+        return new Outcome(Long.MAX_VALUE, FAILURE_NONE, 0, 0, 0, null, duplicate, lines);
+    }
+
+    /**
+     * @return row-major index of the first cell that was not filled or -1.
+     */
+    private int firstMissingCell() {
+        for (int word = 0; word < this.filled.length(); ++word) {
+            long bits = this.filled.get(word);
+            if (bits != -1L) {
+                int index = (word << 6) + Long.numberOfTrailingZeros(~bits);
+                return index < this.cells.length ? index : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Exception of the first broken line: the same exceptions (and messages) as the sequential readers give.
+     */
+    private IncorrectFileValuesException failureOf(FileChannel channel, Outcome outcome) {
+        return switch (outcome.failureKind) {
+            case FAILURE_PARTS -> this.body.probabilityPartsFailure();
+            case FAILURE_VALUE -> this.body.probabilityValueFailure();
+            case FAILURE_STORE -> storeFailure(outcome);
+            default -> keywordFailure(channel, outcome);
+        };
+    }
+
+    /**
+     * The body checks the cell once more and builds its own exception.
+     */
+    private IncorrectFileValuesException storeFailure(Outcome outcome) {
+        try {
+            this.body.storeProbability(outcome.hypo, outcome.fact, outcome.probability);
+        } catch (IncorrectFileValuesException e) {
+            return e;
+        }
+        throw new CrashException("The cell [" + (outcome.hypo + 1) + "; " + (outcome.fact + 1)
+                + "] was rejected by the parallel parser, but accepted by the body.");
+    }
+
+    /**
+     * The line of the keyword is numbered as {@code readAllStreaming(Path)} does it (from 1):
+     * the lines before it are counted only now, on the failure path.
+     */
+    private IncorrectFileValuesException keywordFailure(FileChannel channel, Outcome outcome) {
+        long line;
+        try {
+            line = lineNumber(channel, outcome.failureOffset);
+        } catch (IOException e) {
+            return readingFailure(this.toLog, e);
+        }
+        IncorrectFileValuesException e = new IncorrectFileValuesException("Keyword {" + outcome.keyword
+                + "} in line " + line + " was found after the part with the keyword «prob».");
+        this.toLog.severe(e.getMessage());
+        return e;
+    }
+
+    /**
+     * @return number (from 1) of the line that starts at {@code offset}.
+     */
+    private static long lineNumber(FileChannel channel, long offset) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(1 << 16);
+        long line = 1;
+        long position = 0;
+        while (position < offset) {
+            probe.clear();
+            probe.limit((int) Math.min(probe.capacity(), offset - position));
+            int read = channel.read(probe, position);
+            if (read <= 0) { break; }
+            for (int i = 0; i < read; ++i) {
+                if (probe.get(i) == '\n') { line++; }
+            }
+            position += read;
+        }
+        return line;
+    }
+
+    private IncorrectFileValuesException cellFailure(int index, String problem) {
+        IncorrectFileValuesException e = new IncorrectFileValuesException("Cell [" + (index / this.factsCount + 1)
+                + "; " + (index % this.factsCount + 1) + "] of the table " + problem + " (lines «prob»).");
+        this.toLog.severe(e.getMessage());
+        return e;
+    }
+
+    private static IncorrectFileValuesException longLine(Logger toLog) {
+        IncorrectFileValuesException e = new IncorrectFileValuesException(
+                "A line of the file is too long for the parallel reader.");
+        toLog.severe(e.getMessage());
+        return e;
+    }
+
+    private static IncorrectFileValuesException readingFailure(Logger toLog, IOException cause) {
+        IncorrectFileValuesException e
+                = new IncorrectFileValuesException("Reading file failure: " + cause.getMessage());
+        toLog.log(Level.SEVERE, "File data failure.", cause);
+        return e;
+    }
+}
@@ -0,0 +1,100 @@
+package pets.bayesianlogic.stuff;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of posterior arrays of one model, keyed by the evidence vector. <br>
+ * Usually a few evidence patterns make the most of the queries, so their posteriors are kept
+ * and the least recently used pattern is dropped when the cache is full.
+ * The arrays are copied on the way in and on the way out (the caller may change its array freely). <br>
+ * The cache is NOT thread-safe (as the body that owns it) and must be cleared by every change of the model.
+ * @author Kolesnikov Stephan
+ */
+final class PosteriorCache {
+
+    /**
+     * Name of the system property with the capacity of the cache (amount of evidence patterns).
+     */
+    static final String CAPACITY_PROPERTY = "pets.bayesianlogic.posterior.cache";
+
+    /**
+     * Capacity by default.
+     */
+    static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * Maximum amount of the kept patterns (0 turns the cache off).
+     */
+    private final int capacity;
+
+    /**
+     * Posteriors in the access order (the eldest pattern is dropped first).
+     */
+    private final LinkedHashMap<Evidence, double[]> entries;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * The constructor takes the capacity from {@value #CAPACITY_PROPERTY} (or {@value #DEFAULT_CAPACITY}).
+     */
+    PosteriorCache() {
+        this(Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY));
+    }
+
+    /**
+     * @param capacity maximum amount of the kept patterns (0 turns the cache off).
+     */
+    PosteriorCache(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Evidence, double[]> eldest) {
+                return size() > PosteriorCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * @param evidence evidence vector.
+     * @return copy of the cached posteriors or <code>null</code>.
+     */
+    double[] get(Evidence evidence) {
+        double[] posteriors = this.entries.get(evidence);
+        if (posteriors == null) {
+            this.misses++;
+            return null;
+        }
+        this.hits++;
+        return posteriors.clone();
+    }
+
+    /**
+     * Keeps a copy of the posteriors (the eldest pattern may be dropped).
+     */
+    void put(Evidence evidence, double[] posteriors) {
+        if (this.capacity > 0) {
+            this.entries.put(evidence, posteriors.clone());
+        }
+    }
+
+    /**
+     * Drops every pattern (after a change of the model).
+     */
+    void clear() {
+        this.entries.clear();
+    }
+
+    int size() {
+        return this.entries.size();
+    }
+
+    long getHits() {
+        return this.hits;
+    }
+
+    long getMisses() {
+        return this.misses;
+    }
+}
@@ -0,0 +1,231 @@
+package pets.bayesianlogic.stuff;
+
+import pets.bayesianlogic.except.CrashException;
+
+/**
+ * Updatable posterior of one session of questions: facts are observed and retracted one by one. <br>
+ * The state keeps the log-score of every hypothesis and the log-normalizer, so one update costs O(H)
+ * (instead of the full H×F product and validation of {@code getStringResult()}):
+ * the contribution of the fact is added to (or subtracted from) every score,
+ * then the normalizer is recomputed by log-sum-exp. <br>
+ * The state is bound to the engine it was created by, later changes of a body do not affect it.
+ * The object is NOT thread-safe.
+ * @author Kolesnikov Stephan
+ */
+public final class PosteriorState {
+
+    /**
+     * Cached array of states (values() creates a new array on every call).
+     */
+    private static final FactState[] STATES = FactState.values();
+
+    /**
+     * Engine of the model.
+     */
+    private final LogSpaceEngine engine;
+
+    /**
+     * Finite part of the log-score of every hypothesis.
+     */
+    private final double[] logScores;
+
+    /**
+     * Amount of observations with zero probability (log = -∞) per hypothesis.
+     * They are counted apart, because -∞ cannot be subtracted back.
+     */
+    private final int[] impossibleCounts;
+
+    /**
+     * Ordinals of {@link FactState} per fact (all facts are unknown at the start).
+     */
+    private final byte[] states;
+
+    /**
+     * Running normalizer: log Σ exp(score_i).
+     */
+    private double logNormalizer;
+
+    /**
+     * The constructor creates the state without observations (posteriors are equal to the prior chances).
+     * @param engine engine of the model.
+     */
+    PosteriorState(LogSpaceEngine engine) {
+        this.engine = engine;
+        this.logScores = new double[engine.getHyposCount()];
+        this.impossibleCounts = new int[engine.getHyposCount()];
+        this.states = new byte[engine.getFactsCount()];
+        java.util.Arrays.fill(this.states, (byte) FactState.UNKNOWN.ordinal());
+
+        for (int i = 0; i < this.logScores.length; ++i) {
+            addContribution(i, engine.logPrior(i));
+        }
+        updateNormalizer();
+    }
+
+    /**
+     * Observation of a fact (replaces its previous state). Costs O(H).
+     * @param fact zero-based fact index.
+     * @param state new state of the fact ({@code UNKNOWN} is the same as {@link #retract(int)}).
+     */
+    public void observe(int fact, FactState state) {
+        if (change(fact, state)) { updateNormalizer(); }
+    }
+
+    /**
+     * Observation without the recomputation of the normalizer (for a batch of observations,
+     * which is finished by one {@link #normalize()}).
+     * @return true, if the state of the fact was changed.
+     */
+    boolean change(int fact, FactState state) {
+        FactState previous = STATES[this.states[fact]];
+        if (previous == state) { return false; }
+
+        for (int i = 0; i < this.logScores.length; ++i) {
+            if (previous != FactState.UNKNOWN) {
+                removeContribution(i, this.engine.contribution(i, fact, previous));
+            }
+            if (state != FactState.UNKNOWN) {
+                addContribution(i, this.engine.contribution(i, fact, state));
+            }
+        }
+        this.states[fact] = (byte) state.ordinal();
+        return true;
+    }
+
+    /**
+     * Recomputation of the normalizer after a batch of {@code change(...)}, O(H).
+     */
+    void normalize() {
+        updateNormalizer();
+    }
+
+    /**
+     * Observation of a present fact. Costs O(H).
+     * @param fact zero-based fact index.
+     */
+    public void observe(int fact) {
+        observe(fact, FactState.PRESENT);
+    }
+
+    /**
+     * Retraction of a fact: it becomes unknown again. Costs O(H).
+     * @param fact zero-based fact index.
+     */
+    public void retract(int fact) {
+        observe(fact, FactState.UNKNOWN);
+    }
+
+    /**
+     * Recomputation of the scores from scratch (O(H×F)): removes the rounding
+     * accumulated by a long series of additions and subtractions.
+     * Every term is added apart, so the finite part and the amount of impossible observations
+     * stay exact (a later {@link #retract(int)} of an impossible observation still works).
+     */
+    public void resync() {
+        int observedCount = 0;
+        int[] observed = new int[this.states.length];
+        for (int j = 0; j < this.states.length; ++j) {
+            if (this.states[j] != FactState.UNKNOWN.ordinal()) { observed[observedCount++] = j; }
+        }
+
+        for (int i = 0; i < this.logScores.length; ++i) {
+            this.logScores[i] = 0.0;
+            this.impossibleCounts[i] = 0;
+            addContribution(i, this.engine.logPrior(i));
+            for (int k = 0; k < observedCount; ++k) {
+                int fact = observed[k];
+                addContribution(i, this.engine.contribution(i, fact, STATES[this.states[fact]]));
+            }
+        }
+        updateNormalizer();
+    }
+
+    /**
+     * @param hypo zero-based hypothesis index.
+     * @return current posterior probability of the hypothesis.
+     * @throws CrashException every hypothesis is impossible.
+     */
+    public double posterior(int hypo) throws CrashException {
+        checkNormalizer();
+        return Math.exp(score(hypo) - this.logNormalizer);
+    }
+
+    /**
+     * @return current posterior probabilities of all hypotheses.
+     * @throws CrashException every hypothesis is impossible.
+     */
+    public double[] posteriors() throws CrashException {
+        checkNormalizer();
+        double[] posteriors = new double[this.logScores.length];
+        for (int i = 0; i < posteriors.length; ++i) {
+            posteriors[i] = Math.exp(score(i) - this.logNormalizer);
+        }
+        return posteriors;
+    }
+
+    /**
+     * Getter of the running normalizer (log of the evidence probability).
+     */
+    public double getLogNormalizer() {
+        return this.logNormalizer;
+    }
+
+    /**
+     * @param fact zero-based fact index.
+     * @return current state of the fact.
+     */
+    public FactState getState(int fact) {
+        return STATES[this.states[fact]];
+    }
+
+    /**
+     * @return current observations as an immutable evidence vector.
+     */
+    public Evidence toEvidence() {
+        FactState[] current = new FactState[this.states.length];
+        for (int j = 0; j < current.length; ++j) {
+            current[j] = STATES[this.states[j]];
+        }
+        return Evidence.of(current);
+    }
+
+    private double score(int hypo) {
+        return this.impossibleCounts[hypo] > 0 ? Double.NEGATIVE_INFINITY : this.logScores[hypo];
+    }
+
+    private void addContribution(int hypo, double contribution) {
+        if (contribution == Double.NEGATIVE_INFINITY) { this.impossibleCounts[hypo]++; }
+        else { this.logScores[hypo] += contribution; }
+    }
+
+    private void removeContribution(int hypo, double contribution) {
+        if (contribution == Double.NEGATIVE_INFINITY) { this.impossibleCounts[hypo]--; }
+        else { this.logScores[hypo] -= contribution; }
+    }
+
+    /**
+     * Log-sum-exp over the current scores, O(H).
+     */
+    private void updateNormalizer() {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < this.logScores.length; ++i) {
+            max = Math.max(max, score(i));
+        }
+        if (max == Double.NEGATIVE_INFINITY) {
+            this.logNormalizer = max;
+            return;
+        }
+
+        double sum = 0.0;
+        for (int i = 0; i < this.logScores.length; ++i) {
+            sum += Math.exp(score(i) - max);
+        }
+        this.logNormalizer = max + Math.log(sum);
+    }
+
+    private void checkNormalizer() throws CrashException {
+        if (this.logNormalizer == Double.NEGATIVE_INFINITY || Double.isNaN(this.logNormalizer)) {
+            throw new CrashException("Division by zero.");
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package pets.bayesianlogic.stuff;
+
+import pets.bayesianlogic.except.CrashException;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact storage of a model: the probability table in ONE contiguous row-major <code>double[]</code>
+ * and the prior chances of hypotheses in a primitive array. <br>
+ * Compared with <code>double[][]</code> (a separate object per row) and <code>ArrayList&lt;Double&gt;</code>
+ * (a boxed object per chance), the hot loops of inference go through memory linearly and unbox nothing.
+ * Cell P(F_j | H_i) is stored at index {@code i * factsCount + j}. <br>
+ * The fill state is kept incrementally: a bitset of the non-zero cells and the amount of zero (missing) ones
+ * are updated by every {@code set(...)}, so the check of the whole table costs O(1).
+ * A bulk write straight into the array ({@link #cellsForWrite()}) marks the state dirty,
+ * and it is recounted once, on the next check.
+ * @author Kolesnikov Stephan
+ */
+public final class ProbabilityModel implements ProbabilityTable {
+
+    /**
+     * Number of hypotheses (rows of the table).
+     */
+    private final int hyposCount;
+
+    /**
+     * Number of facts (columns of the table).
+     */
+    private final int factsCount;
+
+    /**
+     * Prior chances of hypotheses: P(H_i).
+     */
+    private final double[] priors;
+
+    /**
+     * Row-major table: P(F_j | H_i) at {@code [i * factsCount + j]}.
+     */
+    private final double[] cells;
+
+    /**
+     * Bitset of the non-zero cells (bit {@code index & 63} of the word {@code index >>> 6}).
+     */
+    private final long[] filled;
+
+    /**
+     * Amount of zero cells (valid, if the state is not dirty).
+     */
+    private int missing;
+
+    /**
+     * Flag of a bulk write: {@code filled} and {@code missing} must be recounted before the next use.
+     */
+    private boolean dirty = false;
+
+    /**
+     * The constructor creates an empty (zero-filled) model.
+     * @param hyposCount number of hypotheses.
+     * @param factsCount number of facts.
+     */
+    public ProbabilityModel(int hyposCount, int factsCount) {
+        if (hyposCount < 0 || factsCount < 0 || (long) hyposCount * factsCount > Integer.MAX_VALUE) {
+            throw new CrashException("Invalid model size: " + hyposCount + " x " + factsCount);
+        }
+        this.hyposCount = hyposCount;
+        this.factsCount = factsCount;
+        this.priors = new double[hyposCount];
+        this.cells = new double[hyposCount * factsCount];
+        this.filled = new long[(this.cells.length + 63) >>> 6];
+        this.missing = this.cells.length;
+    }
+
+    /**
+     * Getter of hypotheses count value.
+     */
+    @Override
+    public int getHyposCount() {
+        return this.hyposCount;
+    }
+
+    /**
+     * Getter of facts count value.
+     */
+    @Override
+    public int getFactsCount() {
+        return this.factsCount;
+    }
+
+    /**
+     * @return index of the first cell of the hypothesis row in the row-major array.
+     */
+    public int rowOffset(int hypo) {
+        return hypo * this.factsCount;
+    }
+
+    /**
+     * Getter of one cell P(F_fact | H_hypo).
+     */
+    @Override
+    public double get(int hypo, int fact) {
+        return this.cells[hypo * this.factsCount + fact];
+    }
+
+    /**
+     * Setter of one cell P(F_fact | H_hypo).
+     */
+    @Override
+    public void set(int hypo, int fact, double probability) {
+        int index = hypo * this.factsCount + fact;
+        this.cells[index] = probability;
+        if (this.dirty) { return; }
+
+        long mask = 1L << index;
+        boolean wasFilled = (this.filled[index >>> 6] & mask) != 0;
+        if (probability != 0 && !wasFilled) {
+            this.filled[index >>> 6] |= mask;
+            this.missing--;
+        } else if (probability == 0 && wasFilled) {
+            this.filled[index >>> 6] &= ~mask;
+            this.missing++;
+        }
+    }
+
+    /**
+     * Getter of the prior chance P(H_hypo).
+     */
+    @Override
+    public double getPrior(int hypo) {
+        return this.priors[hypo];
+    }
+
+    /**
+     * Setter of the prior chance P(H_hypo).
+     */
+    @Override
+    public void setPrior(int hypo, double chance) {
+        this.priors[hypo] = chance;
+    }
+
+    /**
+     * Copies the chances from a list (unboxing happens here once, not in the loops of inference).
+     * Hypotheses without a chance in the list get 0.
+     * @param chances list of prior chances.
+     */
+    @Override
+    public void loadPriors(List<Double> chances) {
+        for (int i = 0; i < this.hyposCount; ++i) {
+            this.priors[i] = i < chances.size() ? chances.get(i) : 0.0;
+        }
+    }
+
+    /**
+     * Direct access to the row-major table (for the loops of inference inside the package). READ ONLY:
+     * the writers take the array by {@link #cellsForWrite()}, otherwise the fill state goes wrong.
+     */
+    double[] cells() {
+        return this.cells;
+    }
+
+    /**
+     * Direct access to the row-major table for a bulk write (a parser, a binary reader, a copy):
+     * the fill state becomes dirty and is recounted once, on the next check.
+     */
+    double[] cellsForWrite() {
+        this.dirty = true;
+        return this.cells;
+    }
+
+    /**
+     * Marks every cell as filled without a recount: for a writer that has checked every cell itself
+     * (the parallel parser has its own bitset of the lines and rejects a zero probability).
+     */
+    void markAllFilled() {
+        Arrays.fill(this.filled, -1L);
+        int tail = this.cells.length & 63;
+        if (tail != 0) { this.filled[this.filled.length - 1] = (1L << tail) - 1; }
+        this.missing = 0;
+        this.dirty = false;
+    }
+
+    /**
+     * Direct access to the prior chances (for the loops of inference inside the package).
+     */
+    double[] priors() {
+        return this.priors;
+    }
+
+    /**
+     * Amount of zero cells: O(1), unless the table was written in bulk since the last check.
+     */
+    @Override
+    public long missingCount() {
+        recountIfDirty();
+        return this.missing;
+    }
+
+    /**
+     * The cells are found by the words of the bitset (64 cells per step), only if some are missing.
+     */
+    @Override
+    public int[] missingCells(int limit) {
+        recountIfDirty();
+        int[] found = new int[Math.max(0, Math.min(limit, this.missing))];
+        int count = 0;
+        for (int word = 0; word < this.filled.length && count < found.length; ++word) {
+            long empty = ~this.filled[word];
+            while (empty != 0 && count < found.length) {
+                int index = (word << 6) + Long.numberOfTrailingZeros(empty);
+                if (index >= this.cells.length) { break; }
+                found[count++] = index;
+                empty &= empty - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Recount of the fill state after a bulk write (one pass over the table).
+     */
+    private void recountIfDirty() {
+        if (!this.dirty) { return; }
+
+        Arrays.fill(this.filled, 0L);
+        int zeros = 0;
+        for (int i = 0; i < this.cells.length; ++i) {
+            if (this.cells[i] != 0) {
+                this.filled[i >>> 6] |= 1L << i;
+            } else {
+                zeros++;
+            }
+        }
+        this.missing = zeros;
+        this.dirty = false;
+    }
+
+    /**
+     * Copy of the table in the old format [hypothesis][fact].
+     * @return new <code>double[][]</code>.
+     */
+    @Override
+    public double[][] toNestedArray() {
+        double[][] nested = new double[this.hyposCount][];
+        for (int i = 0; i < this.hyposCount; ++i) {
+            nested[i] = Arrays.copyOfRange(this.cells, i * this.factsCount, (i + 1) * this.factsCount);
+        }
+        return nested;
+    }
+
+    /**
+     * @return deep copy of the model.
+     */
+    @Override
+    public ProbabilityModel copy() {
+        ProbabilityModel copied = new ProbabilityModel(this.hyposCount, this.factsCount);
+        System.arraycopy(this.priors, 0, copied.priors, 0, this.hyposCount);
+        System.arraycopy(this.cells, 0, copied.cells, 0, this.cells.length);
+        System.arraycopy(this.filled, 0, copied.filled, 0, this.filled.length);
+        copied.missing = this.missing;
+        copied.dirty = this.dirty;
+        return copied;
+    }
+
+    /**
+     * The table is dense already.
+     */
+    @Override
+    public ProbabilityModel toDense() {
+        return this;
+    }
+
+    /**
+     * Comparison of the tables only (the chances are compared by the body separately).
+     * @param other other table.
+     * @return true, if the other table is dense too, and the sizes and all cells are equal.
+     */
+    @Override
+    public boolean sameTable(ProbabilityTable other) {
+        return other instanceof ProbabilityModel dense
+                && this.hyposCount == dense.hyposCount
+                && this.factsCount == dense.factsCount
+                && Arrays.equals(this.cells, dense.cells);
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return 8L * (this.cells.length + this.priors.length + this.filled.length);
+    }
+}
@@ -0,0 +1,107 @@
+package pets.bayesianlogic.stuff;
+
+import java.util.List;
+
+/**
+ * Table of a model: the prior chances of hypotheses and the likelihoods P(F_j | H_i). <br>
+ * Two storages exist: {@link ProbabilityModel} (dense, every cell in one row-major array) and
+ * {@link SparseProbabilityModel} (explicit cells only, the rest takes the default of the hypothesis).
+ * The body, the engine and the compiled model work with both of them through this interface.
+ * @author Kolesnikov Stephan
+ */
+public sealed interface ProbabilityTable permits ProbabilityModel, SparseProbabilityModel {
+
+    /**
+     * Getter of hypotheses count value.
+     */
+    int getHyposCount();
+
+    /**
+     * Getter of facts count value.
+     */
+    int getFactsCount();
+
+    /**
+     * Getter of one cell P(F_fact | H_hypo).
+     */
+    double get(int hypo, int fact);
+
+    /**
+     * Setter of one cell P(F_fact | H_hypo).
+     */
+    void set(int hypo, int fact, double probability);
+
+    /**
+     * Getter of the prior chance P(H_hypo).
+     */
+    double getPrior(int hypo);
+
+    /**
+     * Setter of the prior chance P(H_hypo).
+     */
+    void setPrior(int hypo, double chance);
+
+    /**
+     * Copies the chances from a list (hypotheses without a chance in the list get 0).
+     * @param chances list of prior chances.
+     */
+    void loadPriors(List<Double> chances);
+
+    /**
+     * Amount of the cells that were not filled (Bayesian probability cannot be equal to zero).
+     * The fill state is kept incrementally, so the call is O(1) for a table that was not changed since the last one.
+     * @return amount of missing cells.
+     */
+    long missingCount();
+
+    /**
+     * @return true, if every cell is filled (the table can be used for inference).
+     */
+    default boolean isComplete() {
+        return missingCount() == 0;
+    }
+
+    /**
+     * Coordinates of the cells that were not filled, in the row-major order.
+     * @param limit the largest amount of the returned cells.
+     * @return row-major indices ({@code hypo * getFactsCount() + fact}) of at most {@code limit} missing cells.
+     */
+    int[] missingCells(int limit);
+
+    /**
+     * Search of a cell that was not filled (Bayesian probability cannot be equal to zero).
+     * @return row-major index of the first zero cell or -1.
+     */
+    default int firstZeroCell() {
+        int[] first = missingCells(1);
+        return first.length == 0 ? -1 : first[0];
+    }
+
+    /**
+     * Copy of the table in the old format [hypothesis][fact] (a sparse table is expanded!).
+     * @return new <code>double[][]</code>.
+     */
+    double[][] toNestedArray();
+
+    /**
+     * @return deep copy of the table.
+     */
+    ProbabilityTable copy();
+
+    /**
+     * @return dense form of the table (the table itself, if it is dense; otherwise a new expanded copy).
+     */
+    ProbabilityModel toDense();
+
+    /**
+     * Comparison of the tables only (the chances are compared by the body separately).
+     * @param other other table.
+     * @return true, if the storages, the sizes and all cells are equal.
+     */
+    boolean sameTable(ProbabilityTable other);
+
+    /**
+     * @return approximate memory footprint of the table with chances, in bytes.
+     */
+    long estimatedBytes();
+}
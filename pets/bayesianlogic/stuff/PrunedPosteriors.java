@@ -0,0 +1,82 @@
+package pets.bayesianlogic.stuff;
+
+/**
+ * Result of the pruned inference (see {@code LogSpaceEngine.prunedPosteriors(Evidence, double)}):
+ * posteriors of hypotheses, where the pruned ones have 0 and the rest are normalized among themselves,
+ * together with the bound of the error brought by the pruning. <br>
+ * The bound is the largest posterior mass the pruned hypotheses could have in the exact answer,
+ * so no posterior of the result differs from the exact one by more than {@code getErrorBound()}.
+ * The object is immutable.
+ * @author Kolesnikov Stephan
+ */
+public final class PrunedPosteriors {
+
+    /**
+     * Posterior probabilities in the order of hypotheses (0 for the pruned ones).
+     */
+    private final double[] posteriors;
+
+    /**
+     * Amount of pruned hypotheses.
+     */
+    private final int prunedCount;
+
+    /**
+     * Bound of the absolute error of every posterior.
+     */
+    private final double errorBound;
+
+    /**
+     * @param posteriors posterior probabilities (NOT copied, the caller gives away its array).
+     * @param prunedCount amount of pruned hypotheses.
+     * @param errorBound bound of the absolute error of every posterior.
+     */
+    PrunedPosteriors(double[] posteriors, int prunedCount, double errorBound) {
+        this.posteriors = posteriors;
+        this.prunedCount = prunedCount;
+        this.errorBound = errorBound;
+    }
+
+    /**
+     * @return copy of the posteriors in the order of hypotheses.
+     */
+    public double[] getPosteriors() {
+        return this.posteriors.clone();
+    }
+
+    /**
+     * @param hypo zero-based hypothesis index.
+     * @return its posterior (0, if it was pruned).
+     */
+    public double getPosterior(int hypo) {
+        return this.posteriors[hypo];
+    }
+
+    /**
+     * Amount of hypotheses.
+     */
+    public int size() {
+        return this.posteriors.length;
+    }
+
+    /**
+     * Getter of the amount of pruned hypotheses.
+     */
+    public int getPrunedCount() {
+        return this.prunedCount;
+    }
+
+    /**
+     * Getter of the bound of the error: the largest posterior mass of the pruned hypotheses in the exact answer
+     * (0, if nothing was pruned).
+     */
+    public double getErrorBound() {
+        return this.errorBound;
+    }
+
+    @Override
+    public String toString() {
+        return "class: PrunedPosteriors[hypotheses: " + this.posteriors.length
+                + ", pruned: " + this.prunedCount + ", errorBound: " + this.errorBound + "]";
+    }
+}
@@ -0,0 +1,17 @@
+package pets.bayesianlogic.stuff;
+
+/**
+ * One hypothesis of a top-K answer (see {@code LogSpaceEngine.topK(int, Evidence)}).
+ * @param index zero-based index of the hypothesis (in the order of {@code getHypotheses()}).
+ * @param posterior its exact posterior probability (normalized over ALL hypotheses, not only the top ones).
+ * @author Kolesnikov Stephan
+ */
+public record RankedHypothesis(int index, double posterior) {
+
+    /**
+     * @return posterior in percents (as in the printed results).
+     */
+    public double percent() {
+        return this.posterior * 100;
+    }
+}
@@ -0,0 +1,38 @@
+package pets.bayesianlogic.stuff;
+
+/**
+ * Plain loop implementation of {@link InferenceKernel} (works on any JVM).
+ * @author Kolesnikov Stephan
+ */
+final class ScalarInferenceKernel implements InferenceKernel {
+
+    /**
+     * The only instance (the kernel has no state).
+     */
+    static final ScalarInferenceKernel INSTANCE = new ScalarInferenceKernel();
+
+    private ScalarInferenceKernel() {}
+
+    @Override
+    public double sum(double[] values, int offset, int length) {
+        double sum = 0.0;
+        for (int i = offset, end = offset + length; i < end; ++i) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public double sumAt(double[] values, int offset, int[] indices, int count) {
+        double sum = 0.0;
+        for (int k = 0; k < count; ++k) {
+            sum += values[offset + indices[k]];
+        }
+        return sum;
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
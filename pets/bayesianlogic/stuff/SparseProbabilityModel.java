@@ -0,0 +1,346 @@
+package pets.bayesianlogic.stuff;
+
+import pets.bayesianlogic.except.CrashException;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sparse storage of a model: only the explicit cells of every hypothesis are kept
+ * (sorted by fact, one primitive array of columns and one of values per row),
+ * every other cell P(F_j | H_i) takes the default of the hypothesis. <br>
+ * The default of a hypothesis is its own one (keyword {@code prob_default;<hypo>;<p>})
+ * or the global one (keyword {@code prob_default;<p>}). <br>
+ * Memory is O(H + explicit cells) instead of O(H x F). The cells may be set in any order:
+ * a row is sorted (and a repeated cell keeps its LAST value, as in the dense table) on the first read. <br>
+ * The amount of missing cells (the rows without any default) is counted once after a change and kept.
+ * @author Kolesnikov Stephan
+ */
+public final class SparseProbabilityModel implements ProbabilityTable {
+
+    /**
+     * Number of hypotheses (rows of the table).
+     */
+    private final int hyposCount;
+
+    /**
+     * Number of facts (columns of the table).
+     */
+    private final int factsCount;
+
+    /**
+     * Prior chances of hypotheses: P(H_i).
+     */
+    private final double[] priors;
+
+    /**
+     * Own defaults of hypotheses (0 means: not declared, the global one is used).
+     */
+    private final double[] hypoDefaults;
+
+    /**
+     * Global default (0 means: not declared).
+     */
+    private double globalDefault = 0;
+
+    /**
+     * Explicit facts of every row (the first {@code sizes[i]} elements are used).
+     */
+    private final int[][] columns;
+
+    /**
+     * Explicit values of every row (parallel to {@code columns}).
+     */
+    private final double[][] values;
+
+    /**
+     * Amount of explicit cells of every row.
+     */
+    private final int[] sizes;
+
+    /**
+     * Flags of the rows that are sorted by fact and have no repeated facts.
+     */
+    private final boolean[] sorted;
+
+    /**
+     * Amount of missing cells (-1: the table was changed, the amount must be counted again).
+     */
+    private long missing = -1;
+
+    /**
+     * The constructor creates a table without explicit cells and defaults.
+     * @param hyposCount number of hypotheses.
+     * @param factsCount number of facts.
+     */
+    public SparseProbabilityModel(int hyposCount, int factsCount) {
+        if (hyposCount < 0 || factsCount < 0) {
+            throw new CrashException("Invalid model size: " + hyposCount + " x " + factsCount);
+        }
+        this.hyposCount = hyposCount;
+        this.factsCount = factsCount;
+        this.priors = new double[hyposCount];
+        this.hypoDefaults = new double[hyposCount];
+        this.columns = new int[hyposCount][];
+        this.values = new double[hyposCount][];
+        this.sizes = new int[hyposCount];
+        this.sorted = new boolean[hyposCount];
+        for (int i = 0; i < hyposCount; ++i) {
+            this.columns[i] = new int[4];
+            this.values[i] = new double[4];
+            this.sorted[i] = true;
+        }
+    }
+
+    @Override
+    public int getHyposCount() {
+        return this.hyposCount;
+    }
+
+    @Override
+    public int getFactsCount() {
+        return this.factsCount;
+    }
+
+    /**
+     * Setter of the global default (for the hypotheses without their own default).
+     */
+    public void setGlobalDefault(double probability) {
+        this.globalDefault = probability;
+        this.missing = -1;
+    }
+
+    /**
+     * Setter of the own default of a hypothesis.
+     */
+    public void setDefault(int hypo, double probability) {
+        this.hypoDefaults[hypo] = probability;
+        this.missing = -1;
+    }
+
+    /**
+     * @return default of the hypothesis: its own one or the global one (0, if none is declared).
+     */
+    public double getDefault(int hypo) {
+        return this.hypoDefaults[hypo] > 0 ? this.hypoDefaults[hypo] : this.globalDefault;
+    }
+
+    /**
+     * @return amount of explicit cells of the hypothesis.
+     */
+    public int getExplicitCount(int hypo) {
+        normalizeRow(hypo);
+        return this.sizes[hypo];
+    }
+
+    @Override
+    public double get(int hypo, int fact) {
+        normalizeRow(hypo);
+        int k = Arrays.binarySearch(this.columns[hypo], 0, this.sizes[hypo], fact);
+        return k >= 0 ? this.values[hypo][k] : getDefault(hypo);
+    }
+
+    @Override
+    public void set(int hypo, int fact, double probability) {
+        if (fact < 0 || fact >= this.factsCount) {
+            throw new CrashException("Fact index " + (fact + 1) + " is out of range [1.." + this.factsCount + "]!");
+        }
+        int size = this.sizes[hypo];
+        if (size == this.columns[hypo].length) {
+            this.columns[hypo] = Arrays.copyOf(this.columns[hypo], size * 2);
+            this.values[hypo] = Arrays.copyOf(this.values[hypo], size * 2);
+        }
+        if (size > 0 && this.columns[hypo][size - 1] >= fact) {
+            this.sorted[hypo] = false;
+        }
+        this.columns[hypo][size] = fact;
+        this.values[hypo][size] = probability;
+        this.sizes[hypo] = size + 1;
+        this.missing = -1;
+    }
+
+    @Override
+    public double getPrior(int hypo) {
+        return this.priors[hypo];
+    }
+
+    @Override
+    public void setPrior(int hypo, double chance) {
+        this.priors[hypo] = chance;
+    }
+
+    @Override
+    public void loadPriors(List<Double> chances) {
+        for (int i = 0; i < this.hyposCount; ++i) {
+            this.priors[i] = i < chances.size() ? chances.get(i) : 0.0;
+        }
+    }
+
+    /**
+     * Direct access to the prior chances (for the engine inside the package).
+     */
+    double[] priors() {
+        return this.priors;
+    }
+
+    /**
+     * Direct access to the sorted explicit facts of a row (the first {@code getExplicitCount(hypo)} elements).
+     */
+    int[] rowColumns(int hypo) {
+        normalizeRow(hypo);
+        return this.columns[hypo];
+    }
+
+    /**
+     * Direct access to the explicit values of a row (parallel to {@code rowColumns(hypo)}).
+     */
+    double[] rowValues(int hypo) {
+        normalizeRow(hypo);
+        return this.values[hypo];
+    }
+
+    /**
+     * Only a hypothesis without any default can have a missing cell: a fact that is not given, or is given as 0.
+     * The count goes over the explicit cells of such rows once after a change, then it is kept.
+     */
+    @Override
+    public long missingCount() {
+        if (this.missing < 0) {
+            long count = 0;
+            for (int i = 0; i < this.hyposCount; ++i) {
+                if (getDefault(i) > 0) { continue; }
+
+                normalizeRow(i);
+                count += this.factsCount - this.sizes[i];
+                for (int k = 0; k < this.sizes[i]; ++k) {
+                    if (this.values[i][k] == 0) { count++; }
+                }
+            }
+            this.missing = count;
+        }
+        return this.missing;
+    }
+
+    @Override
+    public int[] missingCells(int limit) {
+        int[] found = new int[(int) Math.max(0, Math.min(limit, missingCount()))];
+        int count = 0;
+        for (int i = 0; i < this.hyposCount && count < found.length; ++i) {
+            if (getDefault(i) > 0) { continue; }
+
+            // Merge of the facts 0..F-1 with the sorted explicit facts of the row.
+            int k = 0;
+            for (int j = 0; j < this.factsCount && count < found.length; ++j) {
+                if (k < this.sizes[i] && this.columns[i][k] == j) {
+                    if (this.values[i][k++] != 0) { continue; }
+                }
+                found[count++] = i * this.factsCount + j;
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public double[][] toNestedArray() {
+        double[][] nested = new double[this.hyposCount][];
+        for (int i = 0; i < this.hyposCount; ++i) {
+            nested[i] = new double[this.factsCount];
+            Arrays.fill(nested[i], getDefault(i));
+            normalizeRow(i);
+            for (int k = 0; k < this.sizes[i]; ++k) {
+                nested[i][this.columns[i][k]] = this.values[i][k];
+            }
+        }
+        return nested;
+    }
+
+    @Override
+    public SparseProbabilityModel copy() {
+        SparseProbabilityModel copied = new SparseProbabilityModel(this.hyposCount, this.factsCount);
+        System.arraycopy(this.priors, 0, copied.priors, 0, this.hyposCount);
+        System.arraycopy(this.hypoDefaults, 0, copied.hypoDefaults, 0, this.hyposCount);
+        copied.globalDefault = this.globalDefault;
+        for (int i = 0; i < this.hyposCount; ++i) {
+            normalizeRow(i);
+            copied.columns[i] = Arrays.copyOf(this.columns[i], Math.max(4, this.sizes[i]));
+            copied.values[i] = Arrays.copyOf(this.values[i], Math.max(4, this.sizes[i]));
+            copied.sizes[i] = this.sizes[i];
+        }
+        copied.missing = this.missing;
+        return copied;
+    }
+
+    @Override
+    public ProbabilityModel toDense() {
+        ProbabilityModel dense = new ProbabilityModel(this.hyposCount, this.factsCount);
+        double[][] nested = toNestedArray();
+        for (int i = 0; i < this.hyposCount; ++i) {
+            dense.setPrior(i, this.priors[i]);
+            System.arraycopy(nested[i], 0, dense.cellsForWrite(), dense.rowOffset(i), this.factsCount);
+        }
+        return dense;
+    }
+
+    /**
+     * Comparison of the tables only: the same sizes, the same defaults and the same explicit cells.
+     */
+    @Override
+    public boolean sameTable(ProbabilityTable other) {
+        if (!(other instanceof SparseProbabilityModel sparse)
+                || this.hyposCount != sparse.hyposCount || this.factsCount != sparse.factsCount) {
+            return false;
+        }
+        for (int i = 0; i < this.hyposCount; ++i) {
+            normalizeRow(i);
+            sparse.normalizeRow(i);
+            if (getDefault(i) != sparse.getDefault(i)
+                    || !Arrays.equals(this.columns[i], 0, this.sizes[i], sparse.columns[i], 0, sparse.sizes[i])
+                    || !Arrays.equals(this.values[i], 0, this.sizes[i], sparse.values[i], 0, sparse.sizes[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public long estimatedBytes() {
+        long bytes = 40L * this.hyposCount;
+        for (int i = 0; i < this.hyposCount; ++i) { bytes += 12L * this.columns[i].length; }
+        return bytes;
+    }
+
+    /**
+     * Sorts a row by fact; of the repeated facts the last set value is kept.
+     */
+    private void normalizeRow(int hypo) {
+        if (this.sorted[hypo]) { return; }
+
+        int size = this.sizes[hypo];
+        int[] rowColumns = this.columns[hypo];
+        double[] rowValues = this.values[hypo];
+
+        // Key: fact in the high half, order of setting in the low half (stable order of repeated facts).
+        long[] keys = new long[size];
+        for (int k = 0; k < size; ++k) { keys[k] = ((long) rowColumns[k] << 32) | k; }
+        Arrays.sort(keys);
+
+        int[] newColumns = new int[Math.max(4, size)];
+        double[] newValues = new double[newColumns.length];
+        int count = 0;
+        for (int k = 0; k < size; ++k) {
+            int fact = (int) (keys[k] >>> 32);
+            double value = rowValues[(int) keys[k]];
+            if (count > 0 && newColumns[count - 1] == fact) {
+                newValues[count - 1] = value;
+            } else {
+                newColumns[count] = fact;
+                newValues[count++] = value;
+            }
+        }
+
+        this.columns[hypo] = newColumns;
+        this.values[hypo] = newValues;
+        this.sizes[hypo] = count;
+        this.sorted[hypo] = true;
+    }
+}
@@ -0,0 +1,118 @@
+package pets.bayesianlogic.stuff;
+
+/**
+ * Bounded min-heap of the best log-scores (primitive arrays, no boxing),
+ * used by {@code LogSpaceEngine.topK(int, Evidence)} to select k hypotheses in one scan. <br>
+ * The root is the WORST kept score (the smaller score, or the larger index for equal scores),
+ * so a new candidate is compared with the root only. Every offer costs O(log k), the whole scan — O(H log k).
+ * @author Kolesnikov Stephan
+ */
+final class TopScoreHeap {
+
+    /**
+     * Kept scores (heap order).
+     */
+    private final double[] scores;
+
+    /**
+     * Indices of the kept hypotheses (parallel to {@code scores}).
+     */
+    private final int[] indices;
+
+    /**
+     * Amount of kept elements.
+     */
+    private int size = 0;
+
+    /**
+     * @param capacity maximum amount of kept elements (k).
+     */
+    TopScoreHeap(int capacity) {
+        this.scores = new double[capacity];
+        this.indices = new int[capacity];
+    }
+
+    /**
+     * Offers a hypothesis: it is kept, if the heap is not full or it is better than the worst kept one.
+     */
+    void offer(int index, double score) {
+        if (this.size < this.scores.length) {
+            this.scores[this.size] = score;
+            this.indices[this.size] = index;
+            siftUp(this.size++);
+        } else if (worse(this.scores[0], this.indices[0], score, index)) {
+            this.scores[0] = score;
+            this.indices[0] = index;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Amount of kept elements.
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Empties the heap into arrays sorted from the best to the worst.
+     * @param sortedIndices target of the indices (at least {@code size()} elements).
+     * @param sortedScores target of the scores (at least {@code size()} elements).
+     */
+    void drainSorted(int[] sortedIndices, double[] sortedScores) {
+        for (int k = this.size - 1; k >= 0; --k) {
+            sortedIndices[k] = this.indices[0];
+            sortedScores[k] = this.scores[0];
+
+            this.size--;
+            this.scores[0] = this.scores[this.size];
+            this.indices[0] = this.indices[this.size];
+            siftDown(0);
+        }
+    }
+
+    /**
+     * @return true, if (a) ranks below (b): a smaller score, or the same score and a larger index.
+     */
+    private static boolean worse(double scoreA, int indexA, double scoreB, int indexB) {
+        return scoreA < scoreB || (scoreA == scoreB && indexA > indexB);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!worse(this.scores[position], this.indices[position], this.scores[parent], this.indices[parent])) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int left = 2 * position + 1, right = left + 1, smallest = position;
+            if (left < this.size
+                    && worse(this.scores[left], this.indices[left], this.scores[smallest], this.indices[smallest])) {
+                smallest = left;
+            }
+            if (right < this.size
+                    && worse(this.scores[right], this.indices[right], this.scores[smallest], this.indices[smallest])) {
+                smallest = right;
+            }
+            if (smallest == position) { return; }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double score = this.scores[a];
+        this.scores[a] = this.scores[b];
+        this.scores[b] = score;
+
+        int index = this.indices[a];
+        this.indices[a] = this.indices[b];
+        this.indices[b] = index;
+    }
+}
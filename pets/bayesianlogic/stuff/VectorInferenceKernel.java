@@ -0,0 +1,62 @@
+package pets.bayesianlogic.stuff;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD implementation of {@link InferenceKernel} on the JDK Vector API
+ * with the widest species the CPU has ({@code DoubleVector.SPECIES_PREFERRED}). <br>
+ * Created ONLY through {@link InferenceKernel#preferred()}, which checks the presence of the module
+ * {@code jdk.incubator.vector} first (compile with {@code javac --add-modules jdk.incubator.vector}).
+ * @author Kolesnikov Stephan
+ */
+final class VectorInferenceKernel implements InferenceKernel {
+
+    /**
+     * The widest species of doubles for the current CPU.
+     */
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public double sum(double[] values, int offset, int length) {
+        int end = offset + length;
+        int vectorEnd = offset + SPECIES.loopBound(length);
+
+        DoubleVector accumulator = DoubleVector.zero(SPECIES);
+        int i = offset;
+        for (; i < vectorEnd; i += SPECIES.length()) {
+            accumulator = accumulator.add(DoubleVector.fromArray(SPECIES, values, i));
+        }
+
+        double sum = accumulator.reduceLanes(VectorOperators.ADD);
+        // Tail, which is shorter than one vector.
+        for (; i < end; ++i) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public double sumAt(double[] values, int offset, int[] indices, int count) {
+        int vectorEnd = SPECIES.loopBound(count);
+
+        DoubleVector accumulator = DoubleVector.zero(SPECIES);
+        int k = 0;
+        for (; k < vectorEnd; k += SPECIES.length()) {
+            // Gather: values[offset + indices[k + lane]].
+            accumulator = accumulator.add(DoubleVector.fromArray(SPECIES, values, offset, indices, k));
+        }
+
+        double sum = accumulator.reduceLanes(VectorOperators.ADD);
+        for (; k < count; ++k) {
+            sum += values[offset + indices[k]];
+        }
+        return sum;
+    }
+
+    @Override
+    public String name() {
+        return "vector(" + SPECIES.length() + " lanes)";
+    }
+}